@@ -0,0 +1,237 @@
+// Copyright (c) FIRST Team 2393 and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+package frc.robot;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.swervelib.SwerveDrivetrain;
+import frc.swervelib.SwervePhysics;
+
+/** Monte Carlo robustness test of the auto-no-mouse options
+ *
+ *  <p>Each trial runs an auto in the physics simulation with
+ *  <ul>
+ *  <li>the robot placed a little off from the start pose that odometry assumes,
+ *  <li>simulated camera updates with random latency and noise,
+ *  <li>random wheel friction, robot mass, steering friction and battery resistance.
+ *  </ul>
+ *
+ *  <p>A trial succeeds when the robot ejects a game piece
+ *  while its actual position is within {@link #TOLERANCE} of what odometry believes,
+ *  or, for autos that don't eject anything, when it finishes in time
+ *  and ends within that tolerance.
+ *  For each auto, the success rate and the distribution
+ *  of the time to score resp. finish are summarized.
+ *
+ *  <p>The simulation is global to the process,
+ *  so batches of trials run in separate JVMs,
+ *  spread over all CPU cores by a fork-join pool.
+ */
+public class AutoMonteCarlo
+{
+  /** Max. difference between actual and estimated position for success [m] */
+  static final double TOLERANCE = 0.05;
+
+  /** Trials per JVM */
+  private static final int BATCH = 50;
+
+  /** Standard deviation of start pose [m], [deg] */
+  private static final double START_XY = 0.05, START_HEADING = 2.0;
+
+  /** Camera update period [s], range of latency [s] and noise [m], [deg] */
+  private static final double CAMERA_PERIOD = 0.1,
+                              MIN_LATENCY = 0.02, MAX_LATENCY = 0.15,
+                              MAX_NOISE_XY = 0.05, MAX_NOISE_HEADING = 2.0;
+
+  /** Number of periods of actual poses kept for camera latency */
+  private static final int HISTORY = 16;
+
+  /** Run trials of one auto, print one result per trial
+   *  @param name Name of auto
+   *  @param trials Number of trials
+   *  @param seed Random seed
+   */
+  private static void runTrials(String name, int trials, long seed)
+  {
+    Robot robot = AutoRunner.createRobot();
+    SwerveDrivetrain drivetrain = robot.getDrivetrain();
+    Command auto = robot.getAutos().get(name);
+    if (auto == null)
+      throw new IllegalArgumentException("Unknown auto '" + name + "'");
+    AutoRunner.enableAutonomous();
+    robot.autonomousInit();
+
+    final double friction = SwervePhysics.WHEEL_FRICTION, mass = SwervePhysics.ROBOT_MASS,
+                 steer_friction = SwervePhysics.STEER_FRICTION, resistance = SwervePhysics.BATTERY_RESISTANCE;
+    Random random = new Random(seed);
+    Pose2d[] history = new Pose2d[HISTORY];
+    for (int trial=0; trial<trials; ++trial)
+    {
+      // Stop everything and let lift come down
+      CommandScheduler.getInstance().cancelAll();
+      SmartDashboard.putNumber("Lift Setpoint", 0);
+      for (int i=0; i<50; ++i)
+        AutoRunner.step(robot);
+
+      // Module response
+      SwervePhysics.WHEEL_FRICTION = friction * (0.8 + 0.4*random.nextDouble());
+      SwervePhysics.ROBOT_MASS = mass * (0.9 + 0.2*random.nextDouble());
+      SwervePhysics.STEER_FRICTION = steer_friction * (0.5 + 1.5*random.nextDouble());
+      SwervePhysics.BATTERY_RESISTANCE = resistance * (0.7 + 0.8*random.nextDouble());
+
+      // Odometry starts at nominal pose, robot is actually placed a little off
+      double[] nominal = AutoRunner.START_POSES[random.nextInt(AutoRunner.START_POSES.length)];
+      Pose2d start_pose = AutoRunner.setStart(robot, auto, nominal[0], nominal[1], nominal[2]);
+      drivetrain.setSimulatedPose(start_pose.getX() + START_XY * random.nextGaussian(),
+                                  start_pose.getY() + START_XY * random.nextGaussian(),
+                                  start_pose.getRotation().getDegrees() + START_HEADING * random.nextGaussian());
+
+      // Camera for this trial
+      int latency = (int) Math.round((MIN_LATENCY + (MAX_LATENCY - MIN_LATENCY) * random.nextDouble()) / 0.02);
+      double noise_xy = MAX_NOISE_XY * random.nextDouble(), noise_heading = MAX_NOISE_HEADING * random.nextDouble();
+      Arrays.fill(history, drivetrain.getSimulatedPose());
+
+      int ejected = EjectCommand.getEjected();
+      double start = Timer.getFPGATimestamp(), elapsed = 0.0, next_camera = 0.0;
+      double score_time = Double.NaN, score_error = Double.NaN;
+      auto.schedule();
+      for (int period=0; auto.isScheduled()  &&  elapsed < AutoRunner.AUTO_TIME; ++period)
+      {
+        AutoRunner.step(robot);
+        elapsed = Timer.getFPGATimestamp() - start;
+
+        // Camera sees the actual pose of a few periods ago, with noise
+        history[period % HISTORY] = drivetrain.getSimulatedPose();
+        if (elapsed >= next_camera)
+        {
+          next_camera += CAMERA_PERIOD;
+          Pose2d seen = history[(period - latency + HISTORY) % HISTORY];
+          drivetrain.updateLocationFromCamera(new Pose2d(seen.getX() + noise_xy * random.nextGaussian(),
+                                                         seen.getY() + noise_xy * random.nextGaussian(),
+                                                         seen.getRotation().plus(Rotation2d.fromDegrees(noise_heading * random.nextGaussian()))),
+                                              Timer.getFPGATimestamp() - latency * 0.02);
+        }
+
+        // First eject: Where is robot vs. where it thinks it is?
+        if (Double.isNaN(score_time)  &&  EjectCommand.getEjected() > ejected)
+        {
+          score_time = elapsed;
+          score_error = drivetrain.getSimulatedPose().getTranslation().getDistance(drivetrain.getPose().getTranslation());
+        }
+      }
+
+      String result;
+      if (! Double.isNaN(score_time))
+        result = (score_error <= TOLERANCE ? "ok" : "miss") + "\tscore\t" + score_time + "\t" + score_error;
+      else
+      {
+        double error = drivetrain.getSimulatedPose().getTranslation().getDistance(drivetrain.getPose().getTranslation());
+        boolean ok = !auto.isScheduled()  &&  error <= TOLERANCE;
+        result = (ok ? "ok" : "miss") + "\tfinish\t" + elapsed + "\t" + error;
+      }
+      System.out.println(AutoRunner.RESULT + result);
+    }
+  }
+
+  /** @param sorted Sorted values
+   *  @param fraction 0..1
+   *  @return Percentile
+   */
+  private static double percentile(double[] sorted, double fraction)
+  {
+    if (sorted.length <= 0)
+      return Double.NaN;
+    return sorted[(int) Math.min(sorted.length - 1, Math.round(fraction * (sorted.length - 1)))];
+  }
+
+  /** Test code, can run without robot
+   *
+   *  @param args Number of trials per auto (default 1000), optional part of auto name
+   *  @throws Exception on error
+   */
+  public static void main(String[] args) throws Exception
+  {
+    if (args.length == 4  &&  args[0].equals("--trials"))
+    {
+      runTrials(args[1], Integer.parseInt(args[2]), Long.parseLong(args[3]));
+      System.exit(0);
+    }
+
+    int trials = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+    String filter = args.length > 1 ? args[1] : "";
+    long start = System.nanoTime();
+
+    // Batches of trials for each auto
+    Map<String, List<String[]>> batches = new LinkedHashMap<>();
+    long seed = 2393;
+    for (String auto : AutoRunner.runChild(AutoRunner.class, "--list"))
+    {
+      String name = auto.split("\t")[0];
+      if (! name.contains(filter))
+        continue;
+      List<String[]> runs = new ArrayList<>();
+      for (int done=0; done<trials; done+=BATCH)
+        runs.add(new String[] { "--trials", name, Integer.toString(Math.min(BATCH, trials - done)), Long.toString(seed++) });
+      batches.put(name, runs);
+    }
+
+    // Each task of the pool waits for one JVM
+    ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    Map<String, List<String>> results = pool.submit(() ->
+      batches.entrySet().parallelStream().collect(Collectors.toMap(Map.Entry::getKey, entry ->
+        entry.getValue().parallelStream().flatMap(batch ->
+        {
+          try
+          {
+            return AutoRunner.runChild(AutoMonteCarlo.class, batch).stream();
+          }
+          catch (Exception ex)
+          {
+            System.out.println(ex.getMessage());
+            return List.<String>of().stream();
+          }
+        }).collect(Collectors.toList())))).get();
+    pool.shutdown();
+
+    System.out.println("Auto                           Trials  Success  Time p10    p50    p90    max   (score/finish)");
+    for (String name : batches.keySet())
+    {
+      List<String> trial_results = results.get(name);
+      int ok = 0;
+      List<Double> times = new ArrayList<>();
+      String kind = "";
+      for (String result : trial_results)
+      {
+        String[] items = result.split("\t");
+        if (items[0].equals("ok"))
+        {
+          ++ok;
+          times.add(Double.parseDouble(items[2]));
+        }
+        kind = items[1];
+      }
+      double[] sorted = times.stream().mapToDouble(Double::doubleValue).sorted().toArray();
+      System.out.format("%-30s %6d  %5.1f%%   %5.2f  %5.2f  %5.2f  %5.2f  %s\n",
+                        name.trim(), trial_results.size(),
+                        trial_results.isEmpty() ? 0.0 : 100.0 * ok / trial_results.size(),
+                        percentile(sorted, 0.1), percentile(sorted, 0.5), percentile(sorted, 0.9),
+                        percentile(sorted, 1.0), kind);
+    }
+    System.out.format("%.1f s\n", (System.nanoTime() - start) * 1e-9);
+    System.exit(0);
+  }
+}
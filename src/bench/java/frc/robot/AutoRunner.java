@@ -0,0 +1,236 @@
+// Copyright (c) FIRST Team 2393 and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+package frc.robot;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import edu.wpi.first.wpilibj2.command.Command;
+import frc.tools.AutoTools;
+import frc.tools.SequenceWithStart;
+
+/** Run all auto-no-mouse options in simulation, without GUI
+ *
+ *  <p>Each run creates the {@link Robot}, selects a start pose,
+ *  then steps the command scheduler with a virtual clock
+ *  as fast as possible until the auto finishes or 15 seconds are up.
+ *  It reports the completion time, final pose, number of game pieces
+ *  ejected, i.e. hopefully scored, and the branches taken by SelectCommands.
+ *
+ *  <p>HAL simulation, command scheduler and network tables
+ *  are global to the process, so each run is a separate JVM,
+ *  and runs are spread over all CPU cores.
+ */
+public class AutoRunner
+{
+  /** Duration of the autonomous period [s] */
+  static final double AUTO_TIME = 15.0;
+
+  /** Start poses on the blue and red starting line, facing the reef [x, y, heading] */
+  static final double[][] START_POSES =
+  {
+    {  7.2, 6.1, 180 }, {  7.2, 4.0, 180 }, {  7.2, 1.9, 180 },
+    { 10.3, 6.1,   0 }, { 10.3, 4.0,   0 }, { 10.3, 1.9,   0 },
+  };
+
+  /** Prefix of the result line printed by a run */
+  static final String RESULT = "RESULT\t";
+
+  /** Print names of all autos, with "\tstart" for those that set their own start pose */
+  private static void list()
+  {
+    Robot robot = createRobot();
+    for (Command auto : robot.getAutos().values())
+      System.out.println(RESULT + auto.getName() + (auto instanceof SequenceWithStart ? "\tstart" : ""));
+  }
+
+  /** @return Robot in headless simulation with paused clock */
+  static Robot createRobot()
+  {
+    HAL.initialize(500, 0);
+    SimHooks.pauseTiming();
+    Robot.headless = true;
+    return new Robot();
+  }
+
+  /** Enable the simulated robot in autonomous mode */
+  static void enableAutonomous()
+  {
+    DriverStationSim.setAutonomous(true);
+    DriverStationSim.setEnabled(true);
+    DriverStationSim.notifyNewData();
+    DriverStation.refreshData();
+  }
+
+  /** Set odometry to start pose
+   *  @param robot Robot
+   *  @param auto Auto that may set its own start pose
+   *  @param x Start pose X [m], ignored if auto sets its own start
+   *  @param y .. Y [m]
+   *  @param heading .. heading [deg]
+   *  @return Start pose
+   */
+  static Pose2d setStart(Robot robot, Command auto, double x, double y, double heading)
+  {
+    if (auto instanceof SequenceWithStart)
+      AutoTools.indicateStart(robot.getDrivetrain(), auto);
+    else
+      robot.getDrivetrain().setOdometry(x, y, heading);
+    return robot.getDrivetrain().getPose();
+  }
+
+  /** Advance virtual clock by one period and run the robot code,
+   *  like TimedRobot but without waiting for the next period
+   *  @param robot Robot
+   */
+  static void step(Robot robot)
+  {
+    SimHooks.stepTimingAsync(0.02);
+    DriverStation.refreshData();
+    robot.autonomousPeriodic();
+    robot.robotPeriodic();
+    robot.simulationPeriodic();
+  }
+
+  /** Run one auto, print result
+   *  @param name Name of auto
+   *  @param x Start pose X [m], ignored if auto sets its own start
+   *  @param y .. Y [m]
+   *  @param heading .. heading [deg]
+   */
+  private static void run(String name, double x, double y, double heading)
+  {
+    Robot robot = createRobot();
+    Command auto = robot.getAutos().get(name);
+    if (auto == null)
+      throw new IllegalArgumentException("Unknown auto '" + name + "'");
+
+    enableAutonomous();
+    robot.autonomousInit();
+    Pose2d start_pose = setStart(robot, auto, x, y, heading);
+    robot.getDrivetrain().setSimulatedPose(start_pose.getX(), start_pose.getY(), start_pose.getRotation().getDegrees());
+    List<String> branches = new ArrayList<>();
+    AutoNoMouse.branch_listener = branches::add;
+    auto.schedule();
+
+    double start = Timer.getFPGATimestamp();
+    double elapsed = 0.0;
+    while (auto.isScheduled()  &&  elapsed < AUTO_TIME)
+    {
+      step(robot);
+      elapsed = Timer.getFPGATimestamp() - start;
+    }
+
+    Pose2d pose = robot.getDrivetrain().getPose();
+    System.out.println(RESULT + String.format("%-30s start %5.2f %5.2f %4.0f: %s %5.2f s, end %5.2f %5.2f %4.0f, %d scored, %s",
+                                              name.trim(), x, y, heading,
+                                              auto.isScheduled() ? "TIMEOUT " : "finished",
+                                              elapsed,
+                                              pose.getX(), pose.getY(), pose.getRotation().getDegrees(),
+                                              EjectCommand.getEjected(),
+                                              branches.isEmpty() ? "no branches" : String.join(", ", branches)));
+  }
+
+  /** Run a class in a separate JVM
+   *  @param main Class with main method
+   *  @param args Arguments
+   *  @return Result lines
+   *  @throws Exception on error
+   */
+  static List<String> runChild(Class<?> main, String... args) throws Exception
+  {
+    List<String> command = new ArrayList<>();
+    command.add(new File(System.getProperty("java.home"), "bin/java").getPath());
+    command.add("-Djava.library.path=" + System.getProperty("java.library.path"));
+    command.add("-cp");
+    command.add(System.getProperty("java.class.path"));
+    command.add(main.getName());
+    command.addAll(List.of(args));
+    Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+
+    List<String> results = new ArrayList<>(), output = new ArrayList<>();
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream())))
+    {
+      String line;
+      while ((line = reader.readLine()) != null)
+        if (line.startsWith(RESULT))
+          results.add(line.substring(RESULT.length()));
+        else
+          output.add(line);
+    }
+    if (process.waitFor() != 0  ||  results.isEmpty())
+      throw new Exception("Run " + String.join(" ", args) + " failed:\n" + String.join("\n", output));
+    return results;
+  }
+
+  /** Test code, can run without robot
+   *
+   *  <p>Without arguments, runs all autos from all start poses.
+   *  With an argument, only autos whose name contains that text.
+   *
+   *  @param args Optional part of auto name
+   *  @throws Exception on error
+   */
+  public static void main(String[] args) throws Exception
+  {
+    if (args.length == 1  &&  args[0].equals("--list"))
+    {
+      list();
+      System.exit(0);
+    }
+    if (args.length == 5  &&  args[0].equals("--run"))
+    {
+      run(args[1], Double.parseDouble(args[2]), Double.parseDouble(args[3]), Double.parseDouble(args[4]));
+      System.exit(0);
+    }
+
+    String filter = args.length > 0 ? args[0] : "";
+    long start = System.nanoTime();
+    int cores = Runtime.getRuntime().availableProcessors();
+    ExecutorService pool = Executors.newFixedThreadPool(cores);
+    List<Future<List<String>>> runs = new ArrayList<>();
+    for (String auto : runChild(AutoRunner.class, "--list"))
+    {
+      String[] name_start = auto.split("\t");
+      String name = name_start[0];
+      if (! name.contains(filter))
+        continue;
+      if (name_start.length > 1)
+        runs.add(pool.submit(() -> runChild(AutoRunner.class, "--run", name, "0", "0", "0")));
+      else
+        for (double[] pose : START_POSES)
+          runs.add(pool.submit(() -> runChild(AutoRunner.class, "--run", name,
+                                              Double.toString(pose[0]), Double.toString(pose[1]), Double.toString(pose[2]))));
+    }
+
+    int failed = 0;
+    for (Future<List<String>> run : runs)
+      try
+      {
+        for (String result : run.get())
+          System.out.println(result);
+      }
+      catch (Exception ex)
+      {
+        ++failed;
+        System.out.println(ex.getCause().getMessage());
+      }
+    pool.shutdown();
+    System.out.format("%d runs, %d failed, on %d cores in %.1f s\n",
+                      runs.size(), failed, cores, (System.nanoTime() - start) * 1e-9);
+    System.exit(0);
+  }
+}
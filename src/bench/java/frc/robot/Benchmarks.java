@@ -0,0 +1,219 @@
+// Copyright (c) FIRST Team 2393 and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+package frc.robot;
+
+import java.io.File;
+import java.util.List;
+import java.util.Random;
+
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.apriltag.AprilTagFields;
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.geometry.Translation3d;
+import edu.wpi.first.math.trajectory.Trajectory;
+import edu.wpi.first.math.trajectory.TrajectoryGenerator;
+import edu.wpi.first.math.trajectory.TrajectoryUtil;
+import edu.wpi.first.wpilibj.util.Color;
+import edu.wpi.first.wpilibj2.command.Command;
+import frc.led.ColorPair;
+import frc.led.Comet;
+import frc.led.Fill;
+import frc.led.LEDRing;
+import frc.led.Marquee;
+import frc.led.Rainbow;
+import frc.swervelib.PlannedTrajectoryCommand;
+import frc.swervelib.SimulatedDrivetrain;
+import frc.swervelib.SwervePhysics;
+import frc.tools.AutoTools;
+import frc.tools.Benchmark;
+import frc.tools.FieldPlanner;
+import frc.tools.TrajectoryFile;
+import frc.tools.TrajectoryPlanner;
+
+/** Benchmarks for code that runs every period
+ *
+ *  <p>Run on the desktop to check time and allocated
+ *  memory per call before deploying to the roboRIO.
+ *  Uses a simulated drivetrain instead of motors.
+ */
+public class Benchmarks
+{
+  /** @param name Name of LED command
+   *  @param command LED command to benchmark
+   */
+  private static void benchmarkLED(String name, Command command)
+  {
+    command.initialize();
+    Benchmark.run(name, 10_000, i ->
+    {
+      command.execute();
+      return 0.0;
+    });
+  }
+
+  /** Compare loading a PathWeaver path from JSON and from binary file
+   *  @param name Path name
+   */
+  private static void benchmarkPathLoading(String name) throws Exception
+  {
+    File json = new File("src/main/deploy/paths/" + name + ".wpilib.json");
+    File binary = File.createTempFile(name, ".traj");
+    binary.deleteOnExit();
+    TrajectoryFile.write(TrajectoryUtil.fromPathweaverJson(json.toPath()), json, binary);
+    System.out.println(name + ": " + json.length() + " bytes JSON, " + binary.length() + " bytes binary");
+
+    Benchmark.run("JSON " + name, 100, i -> load(() -> TrajectoryUtil.fromPathweaverJson(json.toPath())).getTotalTimeSeconds());
+    Benchmark.run("Binary " + name, 100, i -> load(() -> TrajectoryFile.read(binary)).getTotalTimeSeconds());
+    // Binary file decodes states when accessed, so also time reading all of them
+    Benchmark.run("Binary " + name + " + states", 100, i ->
+    {
+      Trajectory trajectory = load(() -> TrajectoryFile.read(binary));
+      double sum = 0.0;
+      for (Trajectory.State state : trajectory.getStates())
+        sum += state.poseMeters.getX();
+      return sum;
+    });
+  }
+
+  private interface Loader
+  {
+    Trajectory load() throws Exception;
+  }
+
+  private static Trajectory load(Loader loader)
+  {
+    try
+    {
+      return loader.load();
+    }
+    catch (Exception ex)
+    {
+      throw new RuntimeException(ex);
+    }
+  }
+
+  public static void main(String[] args) throws Exception
+  {
+    // Start simulation environment
+    HAL.initialize(500, 0);
+
+    SimulatedDrivetrain drivetrain = new SimulatedDrivetrain();
+
+    Benchmark.run("SwerveDrivetrain.swerve", 100_000, i ->
+    {
+      drivetrain.swerve(1.0, 0.5, 0.1 * (i % 7));
+      return 0.0;
+    });
+
+    Benchmark.run("SwerveModule.getPosition", 1_000_000, i -> drivetrain.getModule(i % 4).getPosition().distanceMeters);
+
+    // One 20ms period of all 4 modules, should be well below 1 ms
+    SwervePhysics physics = new SwervePhysics(4);
+    Benchmark.run("SwervePhysics.step", 10_000, i ->
+    {
+      for (int m=0; m<4; ++m)
+      {
+        physics.setDriveVoltage(m, (i % 100) < 50 ? 12.0 : -12.0);
+        physics.setSteerVoltage(m, (i % 20) < 10 ? 3.0 : -3.0);
+      }
+      physics.step(0.02);
+      return physics.getSpeed(0);
+    });
+
+    // Random robot positions on the field
+    AprilTagFieldLayout tags = AprilTagFieldLayout.loadField(AprilTagFields.k2025ReefscapeWelded);
+    Random random = new Random(42);
+    Pose2d[] poses = new Pose2d[64];
+    for (int i=0; i<poses.length; ++i)
+      poses[i] = new Pose2d(17.5*random.nextDouble(), 8.0*random.nextDouble(), Rotation2d.fromDegrees(360*random.nextDouble()));
+    Benchmark.run("findNearestTag", 100_000, i -> GoToNearestTagCommandHelper.findNearestTag(tags, poses[i % poses.length]).ID);
+    TagIndex index = GoToNearestTagCommandHelper.getIndex(tags);
+    int[] nearest = new int[3];
+    Benchmark.run("TagIndex 3 nearest blue reef", 100_000, i ->
+      index.findNearest(poses[i % poses.length].getX(), poses[i % poses.length].getY(), TagIndex.REEF, TagIndex.BLUE, nearest));
+
+    List<Pose2d> waypoints = List.of(new Pose2d(0.0, 0.0, Rotation2d.fromDegrees(0.0)),
+                                     new Pose2d(1.0, 0.5, Rotation2d.fromDegrees(0.0)),
+                                     new Pose2d(2.0, 1.0, Rotation2d.fromDegrees(90.0)));
+    Benchmark.run("TrajectoryGenerator", 1_000, i ->
+      TrajectoryGenerator.generateTrajectory(waypoints, AutoTools.config).getTotalTimeSeconds());
+
+    // Warmup fills the cache, then measures cache hits
+    Benchmark.run("AutoTools.createTrajectory", 1_000, i ->
+      AutoTools.createTrajectory(true, 0.0, 0.0, 0.0,
+                                       1.0 + 0.001*i, 0.5, 0.0,
+                                       2.0, 1.0, 90.0).getTotalTimeSeconds());
+
+    // Random start points on the field, to destinations in front of reef and station tags
+    FieldPlanner planner = AutoTools.field;
+    Translation2d[] starts = new Translation2d[64], goals = new Translation2d[64];
+    for (int i=0; i<starts.length; ++i)
+    {
+      starts[i] = new Translation2d(1.0 + 15.5*random.nextDouble(), 1.0 + 6.0*random.nextDouble());
+      Pose2d tag = tags.getTags().get(i % tags.getTags().size()).pose.toPose2d();
+      goals[i] = tag.getTranslation().plus(new Translation2d(0.5, tag.getRotation()));
+    }
+    Benchmark.run("FieldPlanner.findPath", 100_000, i ->
+    {
+      List<Translation2d> path = planner.findPath(starts[i % starts.length], goals[(i / starts.length) % goals.length]);
+      return path == null ? 0 : path.size();
+    });
+    Benchmark.run("FieldPlanner.createTrajectory", 1_000, i ->
+    {
+      Trajectory trajectory = planner.createTrajectory(new Pose2d(starts[i % starts.length], Rotation2d.kZero),
+                                                       new Pose2d(goals[(i / starts.length) % goals.length], Rotation2d.kZero),
+                                                       AutoTools.config);
+      return trajectory == null ? 0 : trajectory.getTotalTimeSeconds();
+    });
+
+    // Precomputed route from reef to station vs. planning it
+    RouteTable.compute(index);
+    Pose2d reef = GoToNearestTagCommandHelper.getDestination(index, index.findNearest(4.0, 3.0, TagIndex.REEF, TagIndex.BLUE), false);
+    Pose2d station = GoToNearestTagCommandHelper.getDestination(index, index.findNearest(reef.getX(), reef.getY(), TagIndex.PICKUP, TagIndex.BLUE), false);
+    Benchmark.run("RouteTable.find", 100_000, i -> RouteTable.find(index, reef, station).getTotalTimeSeconds());
+    // Robot 10 cm off, adding a straight line to the start of the route
+    Pose2d near_reef = new Pose2d(reef.getX() + 0.1, reef.getY(), reef.getRotation());
+    Benchmark.run("RouteTable.find 10 cm off", 10_000, i -> RouteTable.find(index, near_reef, station).getTotalTimeSeconds());
+    Benchmark.run("TrajectoryPlanner.createTrajectory", 100, i ->
+      TrajectoryPlanner.createTrajectory(reef, station, PlannedTrajectoryCommand.MAX_SPEED, PlannedTrajectoryCommand.ACCEL).getTotalTimeSeconds());
+
+    benchmarkPathLoading("Circle");
+    benchmarkPathLoading("CoralCircle");
+
+    // Tag as seen by the front camera
+    Pose3d tag_pose = tags.getTagPose(17).get();
+    Transform3d robot_to_cam = new Transform3d(new Translation3d(0.3, -0.03, 0.27),
+                                               new Rotation3d(0, Math.toRadians(-10.0), 0));
+    Transform3d camera_to_target = new Transform3d(new Translation3d(1.5, 0.2, -0.1),
+                                                   new Rotation3d(0, Math.toRadians(10.0), Math.toRadians(175.0)));
+    Benchmark.run("CameraHelper.computeRobotPose", 1_000_000, i ->
+      CameraHelper.computeRobotPose(tag_pose, camera_to_target, robot_to_cam).getX());
+    TagPoseTable tag_table = new TagPoseTable(tags, robot_to_cam);
+    double[] robot_pose = new double[3];
+    Benchmark.run("TagPoseTable.computeRobotPose", 1_000_000, i ->
+    {
+      tag_table.computeRobotPose(17, camera_to_target, robot_pose);
+      return robot_pose[0];
+    });
+    // Both need to get the same result
+    System.out.println(CameraHelper.computeRobotPose(tag_pose, camera_to_target, robot_to_cam) + " vs. " +
+                       String.format("x=%.3f, y=%.3f, %.1f deg", robot_pose[0], robot_pose[1], Math.toDegrees(robot_pose[2])));
+
+    LEDRing ring = new LEDRing();
+    benchmarkLED("ColorPair.execute", new ColorPair(ring, Color.kRed, Color.kBlue));
+    benchmarkLED("Comet.execute", new Comet(ring));
+    benchmarkLED("Fill.execute", new Fill(ring));
+    benchmarkLED("Marquee.execute", new Marquee(ring));
+    benchmarkLED("Rainbow.execute", new Rainbow(ring));
+
+    System.out.println("(" + Benchmark.getSink() + ")");
+    System.exit(0);
+  }
+}
@@ -0,0 +1,215 @@
+// Copyright (c) FIRST Team 2393 and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+package frc.robot;
+
+import java.io.File;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import frc.swervelib.DrivetrainSnapshot;
+import frc.swervelib.ReplayDrivetrain;
+import frc.swervelib.SwerveDrivetrain;
+import frc.tools.BinaryLog;
+
+/** Replay a {@link RobotLog} on the desktop
+ *
+ *  <p>Gyro, module angles and distances from the log are
+ *  fed through the drivetrain's pose estimator,
+ *  and camera updates are added whenever the log shows a new one.
+ *  A virtual clock that's stepped by the log timestamps
+ *  replaces the FPGA time, so a whole match replays in well under a second.
+ *
+ *  <p>The replayed pose is compared to the pose that was logged on the robot.
+ *  When settings like 'vision_xy=0.5' are given, the log is replayed
+ *  again with those settings for an A/B comparison.
+ *
+ *  <p>The log only has the last camera update of each period,
+ *  and neither the individual tags nor lift controller internals,
+ *  so this replays odometry and camera fusion, not the tag processing or lift.
+ */
+public class LogReplay
+{
+  /** Replay settings */
+  static class Settings
+  {
+    /** Odometry standard deviations [m], [rad] */
+    double state_xy = SwerveDrivetrain.STATE_STD_XY, state_heading = SwerveDrivetrain.STATE_STD_HEADING;
+
+    /** Camera standard deviations [m], [rad], NaN to use the logged ones */
+    double vision_xy = Double.NaN, vision_heading = Double.NaN;
+
+    /** Factor for camera standard deviations */
+    double vision_scale = 1.0;
+
+    /** Ignore camera updates that are farther than this from the current estimate [m] */
+    double max_jump = Double.POSITIVE_INFINITY;
+
+    /** @param setting "name=value" */
+    void set(String setting)
+    {
+      String[] name_value = setting.split("=");
+      if (name_value.length != 2)
+        throw new IllegalArgumentException("Expected name=value, got '" + setting + "'");
+      double value = Double.parseDouble(name_value[1]);
+      switch (name_value[0])
+      {
+      case "state_xy":       state_xy = value;       break;
+      case "state_heading":  state_heading = value;  break;
+      case "vision_xy":      vision_xy = value;      break;
+      case "vision_heading": vision_heading = value; break;
+      case "vision_scale":   vision_scale = value;   break;
+      case "max_jump":       max_jump = value;       break;
+      default:
+        throw new IllegalArgumentException("Unknown setting '" + name_value[0] + "'");
+      }
+    }
+
+    @Override
+    public String toString()
+    {
+      return String.format("state_xy=%.3f state_heading=%.3f vision_xy=%s vision_heading=%s vision_scale=%.2f max_jump=%.2f",
+                           state_xy, state_heading,
+                           Double.isNaN(vision_xy) ? "logged" : Double.toString(vision_xy),
+                           Double.isNaN(vision_heading) ? "logged" : Double.toString(vision_heading),
+                           vision_scale, max_jump);
+    }
+  }
+
+  /** Replay log
+   *  @param file Log file
+   *  @param settings Settings to use
+   *  @throws Exception on error
+   */
+  static void replay(File file, Settings settings) throws Exception
+  {
+    // Estimator picks these up when the drivetrain is created
+    SwerveDrivetrain.STATE_STD_XY = settings.state_xy;
+    SwerveDrivetrain.STATE_STD_HEADING = settings.state_heading;
+    ReplayDrivetrain drivetrain = new ReplayDrivetrain();
+    DrivetrainSnapshot snapshot = drivetrain.getSnapshot();
+
+    long start = System.nanoTime();
+    try (BinaryLog.Reader log = new BinaryLog.Reader(file))
+    {
+      int modules = drivetrain.getModuleCount();
+      int[] angle = new int[modules], speed = new int[modules], distance = new int[modules];
+      for (int i=0; i<modules; ++i)
+      {
+        angle[i] = log.getChannel("Angle" + i);
+        speed[i] = log.getChannel("Speed" + i);
+        distance[i] = log.getChannel("Distance" + i);
+      }
+      int x = log.getChannel("X"), y = log.getChannel("Y"), heading = log.getChannel("Heading"), gyro = log.getChannel("Gyro");
+      int updates = log.getChannel("Vision Updates"),
+          vision_x = log.getChannel("Vision X"), vision_y = log.getChannel("Vision Y"), vision_heading = log.getChannel("Vision Heading"),
+          vision_age = log.getChannel("Vision Age"),
+          vision_std_xy = log.getChannel("Vision StdXY"), vision_std_heading = log.getChannel("Vision StdHeading");
+
+      long records = 0;
+      double first_time = Double.NaN, last_time = Double.NaN;
+      double last_updates = Double.NaN;
+      int used = 0, rejected = 0;
+      double sum_residual = 0.0, sum_error = 0.0, max_error = 0.0, sum_heading = 0.0;
+      while (log.next())
+      {
+        // Advance virtual clock by the logged period
+        double time = log.getTime();
+        if (records == 0)
+          first_time = time;
+        else if (time > last_time)
+          SimHooks.stepTimingAsync(time - last_time);
+        last_time = time;
+        double now = Timer.getFPGATimestamp();
+
+        snapshot.setGyro(now, log.get(gyro));
+        for (int i=0; i<modules; ++i)
+          snapshot.setModule(i, log.get(angle[i]), log.get(distance[i]), log.get(speed[i]));
+        if (records == 0)
+        {
+          drivetrain.setOdometry(log.get(x), log.get(y), log.get(heading));
+          // Camera update in first record predates the replay
+          last_updates = log.get(updates);
+        }
+        drivetrain.periodic();
+
+        if (log.get(updates) != last_updates)
+        {
+          last_updates = log.get(updates);
+          Pose2d camera = new Pose2d(log.get(vision_x), log.get(vision_y), Rotation2d.fromDegrees(log.get(vision_heading)));
+          double residual = camera.getTranslation().getDistance(drivetrain.getPose().getTranslation());
+          if (residual > settings.max_jump)
+            ++rejected;
+          else
+          {
+            double std_xy = settings.vision_scale * (Double.isNaN(settings.vision_xy) ? log.get(vision_std_xy) : settings.vision_xy);
+            double std_heading = settings.vision_scale * (Double.isNaN(settings.vision_heading) ? log.get(vision_std_heading) : settings.vision_heading);
+            drivetrain.updateLocationFromCamera(camera, now - log.get(vision_age), std_xy, std_xy, std_heading);
+            sum_residual += residual*residual;
+            ++used;
+          }
+        }
+
+        Pose2d pose = drivetrain.getPose();
+        double error = Math.hypot(pose.getX() - log.get(x), pose.getY() - log.get(y));
+        double heading_error = Math.IEEEremainder(pose.getRotation().getDegrees() - log.get(heading), 360.0);
+        sum_error += error*error;
+        sum_heading += heading_error*heading_error;
+        max_error = Math.max(max_error, error);
+        ++records;
+      }
+      double elapsed = (System.nanoTime() - start) * 1e-9;
+
+      if (records <= 0)
+      {
+        System.out.println("No records in " + file);
+        return;
+      }
+      double duration = last_time - first_time;
+      Pose2d pose = drivetrain.getPose();
+      System.out.println(settings);
+      System.out.format("  %d records over %.1f s replayed in %.3f s (%.0f x real time)\n",
+                        records, duration, elapsed, duration / elapsed);
+      System.out.format("  Camera updates: %d used, %d rejected, RMS distance to estimate %.3f m\n",
+                        used, rejected, used > 0 ? Math.sqrt(sum_residual / used) : 0.0);
+      System.out.format("  Difference to logged pose: RMS %.3f m, max %.3f m, heading RMS %.1f deg\n",
+                        Math.sqrt(sum_error / records), max_error, Math.sqrt(sum_heading / records));
+      System.out.format("  Final pose X=%.3f m, Y=%.3f m, %.1f deg\n",
+                        pose.getX(), pose.getY(), pose.getRotation().getDegrees());
+    }
+  }
+
+  /** Test code, can run without robot
+   *  @param args Log file, optional settings for A/B comparison
+   *  @throws Exception on error
+   */
+  public static void main(String[] args) throws Exception
+  {
+    if (args.length < 1)
+    {
+      System.out.println("USAGE: LogReplay robot_log.bin [name=value ...]");
+      System.out.println("Settings: state_xy, state_heading, vision_xy, vision_heading, vision_scale, max_jump");
+      return;
+    }
+
+    // Start simulation environment with virtual clock
+    HAL.initialize(500, 0);
+    SimHooks.pauseTiming();
+
+    File file = new File(args[0]);
+    System.out.println("Replaying " + file);
+    replay(file, new Settings());
+
+    if (args.length > 1)
+    {
+      Settings variant = new Settings();
+      for (int i=1; i<args.length; ++i)
+        variant.set(args[i]);
+      replay(file, variant);
+    }
+    System.exit(0);
+  }
+}
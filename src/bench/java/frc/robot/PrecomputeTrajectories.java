@@ -0,0 +1,38 @@
+// Copyright (c) FIRST Team 2393 and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+package frc.robot;
+
+import java.io.File;
+
+import frc.tools.AutoTools;
+import frc.tools.TrajectoryCache;
+import frc.tools.TrajectoryFile;
+
+/** Generate the trajectory files that are deployed to the robot
+ *
+ *  <p>Converts the PathWeaver paths into binary "ABC.traj" files, see {@link TrajectoryFile}.
+ *  Creates the trajectories of the {@link AutoNoMouse} routines
+ *  and saves them to "trajectories.bin" in the deploy directory.
+ *  On the robot, they're then read from those files instead of generated.
+ *
+ *  <p>Doesn't create the robot and doesn't need the HAL,
+ *  the deploy directory is passed in the {@link TrajectoryCache#DEPLOY_DIRECTORY} property.
+ *  Run by the 'precomputeTrajectories' Gradle task before the deploy directory is deployed.
+ *  The generated files are not kept in git.
+ */
+public class PrecomputeTrajectories
+{
+  /** @param args Unused
+   *  @throws Exception on error
+   */
+  public static void main(String[] args) throws Exception
+  {
+    if (System.getProperty(TrajectoryCache.DEPLOY_DIRECTORY) == null)
+      throw new Exception("Set -D" + TrajectoryCache.DEPLOY_DIRECTORY + "=path/to/src/main/deploy");
+    TrajectoryFile.convert(new File(TrajectoryCache.getDeployDirectory(), "paths"));
+    AutoNoMouse.createTrajectories();
+    AutoTools.saveTrajectories();
+    System.exit(0);
+  }
+}
@@ -0,0 +1,80 @@
+// Copyright (c) FIRST Team 2393 and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+package frc.swervelib;
+
+import java.util.Random;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import frc.tools.Benchmark;
+
+/** Test code, can run without robot:
+ *  Compare {@link RectangleKinematics} with WPILib and check for allocations
+ */
+public class RectangleKinematicsCheck
+{
+  public static void main(String[] args)
+  {
+    final int N = RectangleKinematics.N;
+    double width = 0.53, length = 0.53, max = 3.0;
+    SwerveDriveKinematics wpilib = new SwerveDriveKinematics(new Translation2d( length / 2,  width / 2),
+                                                             new Translation2d( length / 2, -width / 2),
+                                                             new Translation2d(-length / 2, -width / 2),
+                                                             new Translation2d(-length / 2,  width / 2) );
+    RectangleKinematics kinematics = new RectangleKinematics(width, length);
+    double[] current = { 10.0, -100.0, 170.0, 45.0 };
+
+    // Compare with WPILib for a few random settings
+    double max_error = 0.0;
+    Random random = new Random(42);
+    for (int run=0; run<1000; ++run)
+    {
+      double vx = 4*random.nextDouble() - 2, vy = 4*random.nextDouble() - 2, vr = 6*random.nextDouble() - 3;
+      Translation2d center = run % 2 == 0 ? new Translation2d() : new Translation2d(0.3, -0.1);
+
+      SwerveModuleState[] states = wpilib.toSwerveModuleStates(new ChassisSpeeds(vx, vy, vr), center);
+      for (int i=0; i<N; ++i)
+      {
+        Rotation2d current_angle = Rotation2d.fromDegrees(current[i]);
+        states[i].optimize(current_angle);
+        states[i].cosineScale(current_angle);
+      }
+      SwerveDriveKinematics.desaturateWheelSpeeds(states, max);
+      double omega = wpilib.toChassisSpeeds(states).omegaRadiansPerSecond;
+
+      kinematics.compute(vx, vy, vr, center.getX(), center.getY());
+      for (int i=0; i<N; ++i)
+      {
+        kinematics.optimize(i, current[i]);
+        kinematics.cosineScale(i, current[i]);
+      }
+      kinematics.desaturate(max);
+
+      for (int i=0; i<N; ++i)
+      {
+        max_error = Math.max(max_error, Math.abs(states[i].speedMetersPerSecond - kinematics.getSpeed(i)));
+        max_error = Math.max(max_error, Math.abs(Math.IEEEremainder(states[i].angle.getDegrees() - kinematics.getAngle(i), 360.0)));
+      }
+      max_error = Math.max(max_error, Math.abs(omega - kinematics.getOmega()));
+    }
+    System.out.println("Max. difference to WPILib: " + max_error);
+
+    // Time it, checking how much memory we allocate
+    Benchmark.run("RectangleKinematics", 1_000_000, run ->
+    {
+      kinematics.compute(1.0, 0.5, run % 3, 0, 0);
+      for (int i=0; i<N; ++i)
+      {
+        kinematics.optimize(i, current[i]);
+        kinematics.cosineScale(i, current[i]);
+      }
+      kinematics.desaturate(max);
+      return kinematics.getOmega();
+    });
+    System.out.println("(" + Benchmark.getSink() + ")");
+  }
+}
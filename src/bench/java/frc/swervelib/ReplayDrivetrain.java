@@ -0,0 +1,31 @@
+// Copyright (c) FIRST Team 2393 and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+package frc.swervelib;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+
+/** Drivetrain that replays recorded sensor readings
+ *
+ *  <p>Instead of reading sensors, {@link #sample()} leaves the
+ *  snapshot alone, so gyro and module readings can be set
+ *  from a log via {@link #getSnapshot()} before calling {@link #periodic()}.
+ *  Odometry, pose estimator and camera updates are then
+ *  handled by the same code as on the robot.
+ */
+public class ReplayDrivetrain extends SimulatedDrivetrain
+{
+  @Override
+  public void sample()
+  {
+    // Snapshot is set from the log
+  }
+
+  @Override
+  public Rotation2d getHeading()
+  {
+    // Zero heading doesn't matter because odometry
+    // is set to the logged pose at the start of the replay
+    return Rotation2d.fromDegrees(getSnapshot().getRawHeading());
+  }
+}
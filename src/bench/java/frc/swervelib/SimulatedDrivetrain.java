@@ -0,0 +1,94 @@
+// Copyright (c) FIRST Team 2393 and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+package frc.swervelib;
+
+/** Drivetrain without hardware
+ *
+ *  <p>For running drivetrain code on the desktop,
+ *  for example benchmarks or tests of commands.
+ *  Relies on the simulation support of the base classes,
+ *  so run with the HAL initialized in simulation.
+ */
+public class SimulatedDrivetrain extends SwerveDrivetrain
+{
+  /** Rotator without hardware */
+  private static class SimRotator extends RotatorBase
+  {
+    SimRotator(int index)
+    {
+      super(index, 0.0, 0.0, 0.1, 0.0, 0.0, 9.0);
+    }
+
+    @Override
+    public double getRawDegrees()
+    {
+      return 0.0;
+    }
+
+    @Override
+    public void setVoltage(double voltage)
+    {
+      // No hardware
+    }
+  }
+
+  /** Driver without hardware */
+  private static class SimDriver extends DriverBase
+  {
+    SimDriver(int index)
+    {
+      super(index, 0.05, 2.35, 2.0, 1.5, 0.001);
+    }
+
+    @Override
+    protected double getRawPosition()
+    {
+      return 0.0;
+    }
+
+    @Override
+    protected double getRealSpeed()
+    {
+      return 0.0;
+    }
+
+    @Override
+    public void setVoltage(double voltage)
+    {
+      // No hardware
+    }
+  }
+
+  /** Create drivetrain with 4 simulated modules */
+  public SimulatedDrivetrain()
+  {
+    super(0.53, 0.53, createModules());
+  }
+
+  private static SwerveModule[] createModules()
+  {
+    SwerveModule[] modules = new SwerveModule[4];
+    for (int i=0; i<modules.length; ++i)
+      modules[i] = new SwerveModule(new SimRotator(i), new SimDriver(i));
+    return modules;
+  }
+
+  @Override
+  public double getRawHeading()
+  {
+    return 0.0;
+  }
+
+  @Override
+  public double getPitch()
+  {
+    return 0.0;
+  }
+
+  @Override
+  public double getRoll()
+  {
+    return 0.0;
+  }
+}
@@ -0,0 +1,96 @@
+// Copyright (c) FIRST Team 2393 and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+package frc.swervelib;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.wpilibj.TimedRobot;
+
+/** Test code, can run without robot:
+ *  Time to goal and overshoot of the {@link SwerveToPositionCommand}
+ *  from typical start offsets, P control vs. profile,
+ *  with ideal modules and with the physics simulation of modules
+ */
+public class SwerveToPositionSimulation
+{
+  /** Standard start offsets from the goal: dx [m], dy [m], heading [deg] */
+  static final double[][] OFFSETS =
+  {
+    { 0.1, 0.0, 0.0 },
+    { 0.5, 0.2, 0.0 },
+    { 1.0, -0.5, 30.0 },
+    { 2.0, 1.0, -90.0 },
+    { 4.0, 0.0, 180.0 },
+  };
+
+  /** Use the speed limits of the robot */
+  static void configure()
+  {
+    SwerveToPositionCommand.MAX_SPEED = 5.0;
+    SwerveDrivetrain.MAX_METERS_PER_SEC = 5.0;
+    SwerveDrivetrain.MAX_ROTATION_DEG_PER_SEC = 270;
+  }
+
+  /** Move from start offset to goal, in simulation
+   *  @param drivetrain Simulated drivetrain
+   *  @param physics Does drivetrain use physics simulation?
+   *  @param dx Start offset from goal
+   *  @param dy Start offset from goal
+   *  @param dh Start heading offset [deg]
+   *  @return Time [s], NaN if goal not reached within 10 s, and overshoot past the goal [m]
+   */
+  static double[] simulate(SwerveDrivetrain drivetrain, boolean physics, double dx, double dy, double dh)
+  {
+    double x = 5.0, y = 4.0, heading = 90.0;
+    drivetrain.setOdometry(x+dx, y+dy, heading+dh);
+    drivetrain.setSimulatedPose(x+dx, y+dy, heading+dh);
+    drivetrain.periodic();
+    // Direction from start to goal, for measuring how far the robot gets past the goal
+    double length = Math.hypot(dx, dy), ux = -dx/length, uy = -dy/length;
+    double overshoot = 0.0;
+    SwerveToPositionCommand command = new SwerveToPositionCommand(drivetrain, x, y, heading);
+    command.initialize();
+    for (int step=1; step<=500; ++step)
+    {
+      command.execute();
+      if (physics)
+        drivetrain.simulationPeriodic();
+      drivetrain.periodic();
+      Pose2d actual = physics ? drivetrain.getSimulatedPose() : drivetrain.getPose();
+      overshoot = Math.max(overshoot, (actual.getX() - x)*ux + (actual.getY() - y)*uy);
+      if (command.isFinished())
+      {
+        command.end(false);
+        return new double[] { step * TimedRobot.kDefaultPeriod, overshoot };
+      }
+    }
+    command.end(true);
+    return new double[] { Double.NaN, overshoot };
+  }
+
+  public static void main(String[] args)
+  {
+    HAL.initialize(500, 0);
+    SwerveDrivetrain drivetrain = new SimulatedDrivetrain();
+    SwerveDrivetrain physics = new SimulatedDrivetrain();
+    physics.simulatePhysics();
+    configure();
+    System.out.println("                             Ideal modules          Physics: time, overshoot");
+    System.out.println("Offset (dx, dy, dh)          P control  Profile     P control          Profile");
+    for (double[] offset : OFFSETS)
+    {
+      SwerveToPositionCommand.PROFILED = false;
+      double[] p_ideal = simulate(drivetrain, false, offset[0], offset[1], offset[2]);
+      double[] p_physics = simulate(physics, true, offset[0], offset[1], offset[2]);
+      SwerveToPositionCommand.PROFILED = true;
+      double[] profile_ideal = simulate(drivetrain, false, offset[0], offset[1], offset[2]);
+      double[] profile_physics = simulate(physics, true, offset[0], offset[1], offset[2]);
+      System.out.printf("%5.1f m, %5.1f m, %6.1f deg   %6.2f s   %6.2f s    %6.2f s %5.3f m   %6.2f s %5.3f m\n",
+                        offset[0], offset[1], offset[2],
+                        p_ideal[0], profile_ideal[0],
+                        p_physics[0], p_physics[1], profile_physics[0], profile_physics[1]);
+    }
+    System.exit(0);
+  }
+}
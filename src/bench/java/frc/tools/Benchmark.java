@@ -0,0 +1,59 @@
+// Copyright (c) FIRST Team 2393 and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+package frc.tools;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.IntToDoubleFunction;
+
+/** Benchmark for code that runs every period
+ *
+ *  <p>Runs code many times, first to warm up,
+ *  then reports time and allocated memory per operation.
+ *  Memory per operation is what the JMH 'gc.alloc.rate.norm'
+ *  profiler would report. Code that runs every 20 ms
+ *  should ideally not allocate anything.
+ */
+public class Benchmark
+{
+  private static final com.sun.management.ThreadMXBean threads =
+    (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  /** Results are added up here so the JIT can't drop the code */
+  private static double sink = 0.0;
+
+  /** Time code
+   *  @param name Name of benchmark
+   *  @param ops Number of operations per round
+   *  @param code Code to run, called with operation index 0 .. ops-1, returns any value
+   *  @return Nanoseconds per operation
+   */
+  public static double run(String name, int ops, IntToDoubleFunction code)
+  {
+    // Warm up
+    for (int round=0; round<3; ++round)
+      for (int i=0; i<ops; ++i)
+        sink += code.applyAsDouble(i);
+
+    // Measure
+    final int rounds = 5;
+    long thread = Thread.currentThread().getId();
+    long bytes = threads.getThreadAllocatedBytes(thread);
+    long start = System.nanoTime();
+    for (int round=0; round<rounds; ++round)
+      for (int i=0; i<ops; ++i)
+        sink += code.applyAsDouble(i);
+    long ns = System.nanoTime() - start;
+    bytes = threads.getThreadAllocatedBytes(thread) - bytes;
+
+    double ns_per_op = (double) ns / rounds / ops;
+    System.out.printf("%-30s %12.1f ns/op %12.1f bytes/op\n", name, ns_per_op, (double) bytes / rounds / ops);
+    return ns_per_op;
+  }
+
+  /** @return Sum of all results, print to assert that code had to run */
+  public static double getSink()
+  {
+    return sink;
+  }
+}
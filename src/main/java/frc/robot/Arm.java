@@ -15,6 +15,9 @@ import edu.wpi.first.networktables.NetworkTableEntry;
 import edu.wpi.first.wpilibj.DutyCycleEncoder;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.tools.LoopTiming;
+import frc.tools.Telemetry;
+import frc.tools.Telemetry.Priority;
 
 /** Shooter Arm: Motor to rotate shooter up/down
  *  REV Through Bore encoder 
@@ -35,8 +38,10 @@ public class Arm extends SubsystemBase
   // Rotate at a max speed of 45 deg/sec
   private final TrapezoidProfile.Constraints constraints = new TrapezoidProfile.Constraints(45, 45);
   private ProfiledPIDController pid = new ProfiledPIDController(0.3, 0.03, 0.01, constraints);
-  private NetworkTableEntry nt_kg, nt_angle, nt_desired_angle;
+  private NetworkTableEntry nt_kg, nt_desired_angle;
+  private Telemetry.Topic nt_angle;
   private boolean isDone = false;
+  private final LoopTiming.Probe timing = LoopTiming.probe("Arm");
   
   public Arm()
   {
@@ -52,7 +57,7 @@ public class Arm extends SubsystemBase
 
     nt_kg = SmartDashboard.getEntry("Arm kg");
     nt_kg.setDefaultDouble(0.25);
-    nt_angle = SmartDashboard.getEntry("Arm Angle");
+    nt_angle = Telemetry.number("Arm Angle", 0.1, Priority.NORMAL);
     nt_desired_angle = SmartDashboard.getEntry("Set Arm Angle");
     nt_desired_angle.setDefaultDouble(55);
     SmartDashboard.putData("Arm PID", pid);
@@ -85,8 +90,9 @@ public class Arm extends SubsystemBase
   @Override
   public void periodic()
   {
+    long start = timing.start();
     final double angle = getAngle();
-    nt_angle.setDouble(angle);
+    nt_angle.set(angle);
 
     double kg = nt_kg.getDouble(0.25);
     double setpoint = MathUtil.clamp(nt_desired_angle.getDouble(50), 20, 60);
@@ -96,5 +102,6 @@ public class Arm extends SubsystemBase
     motor.setVoltage(voltage);
 
     isDone = Math.abs(angle - setpoint) < 1;
+    timing.stop(start);
   }
 }
\ No newline at end of file
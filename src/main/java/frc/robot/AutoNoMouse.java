@@ -8,6 +8,7 @@ import static frc.tools.AutoTools.createTrajectory;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 import edu.wpi.first.apriltag.AprilTag;
@@ -36,6 +37,117 @@ import frc.tools.SequenceWithStart;
 /** Auto-no-mouse routines */
 public class AutoNoMouse
 {
+  /** Called with the branches taken by the autos, for example "station coral Low left : tag 21".
+   *  Installed by the AutoRunner, <code>null</code> on the robot
+   */
+  static Consumer<String> branch_listener = null;
+
+  /** Reef tags from which the autos drive to a coral station */
+  private static final int[] STATION_TAGS = { 21, 22, 20, 10, 11, 9 };
+
+  /** Create the trajectories of all autos
+   *
+   *  <p>Only needs the {@link AutoTools}, not the robot,
+   *  so PrecomputeTrajectories can call this on the desktop
+   *  to fill the trajectory cache.
+   */
+  public static void createTrajectories()
+  {
+    createForward(0.5);
+    createForward(1.5);
+    createBack(1.5);
+    for (int tag : STATION_TAGS)
+      createStationTrajectory(tag);
+    createTriangle();
+    createCoralRun();
+    createCoralRunRed();
+  }
+
+  /** @param distance Distance [m]
+   *  @return Trajectory that moves forward
+   */
+  private static Trajectory createForward(double distance)
+  {
+    return createTrajectory(true, 0,        0, 0,
+                                  distance, 0, 0);
+  }
+
+  /** @param distance Distance [m]
+   *  @return Trajectory that moves back to the start of {@link #createForward}
+   */
+  private static Trajectory createBack(double distance)
+  {
+    return createTrajectory(true, distance, 0, 180,
+                                  0,        0, 180);
+  }
+
+  /** @param tag Reef tag, one of STATION_TAGS
+   *  @return Trajectory from a known point near that reef face to near the coral station
+   */
+  private static Trajectory createStationTrajectory(int tag)
+  {
+    switch (tag)
+    {
+    case 21:
+      return createTrajectory(true, 6.57, 4.0,   -90,
+                                    5.28, 1.6,  -140,
+                                    1.59, 1.39, -130);
+    case 22:
+      return createTrajectory(true, 5.5, 2.1,   -160,
+                                    1.59, 1.39, -130);
+    case 20:
+      return createTrajectory(true, 5.7, 5.9,   150,
+                                    1.6, 6.6, 180);
+    case 10:
+      return createTrajectory(true, 10.93, 4.0,  -90,
+                                    12.22, 1.6, -40,
+                                    15.91, 1.39, -50);
+    case 11:
+      return createTrajectory(true, 12, 2.1,   -20,
+                                    15.91, 1.39, -50);
+    case 9:
+      return createTrajectory(true, 11.8, 5.9, 30,
+                                    15.9, 6.6, 0);
+    default:
+      throw new IllegalArgumentException("No station trajectory for tag " + tag);
+    }
+  }
+
+  /** @return Triangle trajectory */
+  private static Trajectory createTriangle()
+  {
+    return createTrajectory(true, 0.0, 0.0,   0.0,
+                                  2.0, 0.0,  90.0,
+                                  1.0, 0.5, 180.0,
+                                  0.0, 0.0, 180.0);
+  }
+
+  /** @return Trajectories for the 'CoralRun': To 1st drop, pickup 2nd, drop 2nd, pickup 3rd, drop 3rd */
+  private static List<Trajectory> createCoralRun()
+  {
+    return List.of(createTrajectory(true, 8.02, 5.41, 180.0,
+                                          6.12, 4.01, 180.0),
+                   createTrajectory(true, 6.12, 4.01,  -80,
+                                          5.8,  1.6,  -140,
+                                          1.09, 1.02, -170),
+                   createTrajectory(true, 1.09, 1.02, 20,
+                                          3.7, 2.6,  60),
+                   createTrajectory(true, 3.7, 2.6,  -120,
+                                          1.09, 1.02, -130),
+                   createTrajectory(true, 1.09, 1.02, 20,
+                                          2.6,  2.2, 90,
+                                          2.8,  4.0, 45));
+  }
+
+  /** @return Trajectories for the 'CoralRunRed': To drop, then to station */
+  private static List<Trajectory> createCoralRunRed()
+  {
+    return List.of(createTrajectory(true, 9.355, 1.3, 0,
+                                          11.55, 4, 0 ),
+                   createTrajectory(true, 11.55,6,0,
+                                          16,7.1, 25));
+  }
+
   /** Create all our auto-no-mouse commands
    *  @param drivetrain SwerveDrivetrain
    *  @param tags AprilTagFieldLayout
@@ -55,9 +167,7 @@ public class AutoNoMouse
       auto.setName("Forward 0.5m");
       auto.addCommands(new VariableWaitCommand());
       auto.addCommands(new SelectRelativeTrajectoryCommand(drivetrain));
-      Trajectory path = createTrajectory(true, 0, 0, 0,
-                                            0.50, 0, 0);
-      auto.addCommands(drivetrain.followTrajectory(path, 0));
+      auto.addCommands(drivetrain.followTrajectory(createForward(0.5), 0));
       autos.add(auto);
     }
 
@@ -97,17 +207,17 @@ public class AutoNoMouse
         final Supplier<Integer> nearest = () ->
         {
           AprilTag tag = GoToNearestTagCommandHelper.findNearestTag(tags, drivetrain.getPose());
-          return tag == null ? 0 : tag.ID;
+          int id = tag == null ? 0 : tag.ID;
+          if (branch_listener != null)
+            branch_listener.accept(auto.getName() + ": tag " + id);
+          return id;
         };
         // What to do if we are at tag 21
         final Command after_21 =
           // Scoot back to known point, no matter if we were in left or right reef column
           new SwerveToPositionCommand(drivetrain, 6.57, 4.0).withTimeout(1.5)
           // From that known point, drive near the loading station
-          .andThen(drivetrain.followTrajectory(createTrajectory(true,
-                                                                6.57, 4.0,   -90,
-                                                                5.28, 1.6,  -140,
-                                                                1.59, 1.39, -130), 52))
+          .andThen(drivetrain.followTrajectory(createStationTrajectory(21), 52))
           // Go to the loading station
           .andThen(new GoToNearestTagCommandHelper(tags).createCommand(drivetrain, right).withTimeout(1.5))
           .andThen(new IntakeCommand(intake));
@@ -117,43 +227,32 @@ public class AutoNoMouse
         // Commands to run from tag 22 on
         final Command after_22 =
           new SwerveToPositionCommand(drivetrain, 5.5, 2.1).withTimeout(1.5)
-          .andThen(drivetrain.followTrajectory(createTrajectory(true,
-                                                                5.5, 2.1,   -160,
-                                                                1.59, 1.39, -130), 52))
+          .andThen(drivetrain.followTrajectory(createStationTrajectory(22), 52))
           .andThen(new GoToNearestTagCommandHelper(tags).createCommand(drivetrain, right).withTimeout(1.5))
           .andThen(new IntakeCommand(intake));
 
         // Commands to run from tag 20 on
         final Command after_20 =
           new SwerveToPositionCommand(drivetrain, 5.7, 5.9).withTimeout(1.5)
-          .andThen(drivetrain.followTrajectory(createTrajectory(true,
-                                                                5.7, 5.9,   150,
-                                                                1.6, 6.6, 180), -52))                                                      
+          .andThen(drivetrain.followTrajectory(createStationTrajectory(20), -52))
           .andThen(new GoToNearestTagCommandHelper(tags).createCommand(drivetrain, right).withTimeout(1.5))
           .andThen(new IntakeCommand(intake));
 
         final Command after_10 =
           new SwerveToPositionCommand(drivetrain, 10.93, 4.0).withTimeout(1.5)
-          .andThen(drivetrain.followTrajectory(createTrajectory(true,
-                                                                10.93, 4.0,  -90,
-                                                                12.22, 1.6, -40,
-                                                                15.91, 1.39, -50), 126))                                                      
+          .andThen(drivetrain.followTrajectory(createStationTrajectory(10), 126))
           .andThen(new GoToNearestTagCommandHelper(tags).createCommand(drivetrain, right).withTimeout(1.5))
           .andThen(new IntakeCommand(intake));
 
         final Command after_11 =
           new SwerveToPositionCommand(drivetrain, 12, 2.1).withTimeout(1.5)
-          .andThen(drivetrain.followTrajectory(createTrajectory(true,
-                                                                12, 2.1,   -20,
-                                                                15.91, 1.39, -50), 126))
+          .andThen(drivetrain.followTrajectory(createStationTrajectory(11), 126))
           .andThen(new GoToNearestTagCommandHelper(tags).createCommand(drivetrain, right).withTimeout(1.5))
           .andThen(new IntakeCommand(intake));
 
         final Command after_9 =
           new SwerveToPositionCommand(drivetrain, 11.8, 5.9).withTimeout(1.5)
-          .andThen(drivetrain.followTrajectory(createTrajectory(true,
-                                                                11.8, 5.9, 30,
-                                                                15.9, 6.6, 0), -126))                                                      
+          .andThen(drivetrain.followTrajectory(createStationTrajectory(9), -126))
           .andThen(new GoToNearestTagCommandHelper(tags).createCommand(drivetrain, right).withTimeout(1.5))
           .andThen(new IntakeCommand(intake));
 
@@ -207,17 +306,17 @@ public class AutoNoMouse
         final Supplier<Integer> nearest = () ->
         {
           AprilTag tag = GoToNearestTagCommandHelper.findNearestTag(tags, drivetrain.getPose());
-          return tag == null ? 0 : tag.ID;
+          int id = tag == null ? 0 : tag.ID;
+          if (branch_listener != null)
+            branch_listener.accept(auto.getName() + ": tag " + id);
+          return id;
         };
         // What to do if we are at tag 21
         final Command after_21 =
           // Scoot back to known point, no matter if we were in left or right reef column
           new SwerveToPositionCommand(drivetrain, 6.57, 4.0).withTimeout(1.5)
           // From that known point, drive near the loading station
-          .andThen(drivetrain.followTrajectory(createTrajectory(true,
-                                                                6.57, 4.0,   -90,
-                                                                5.28, 1.6,  -140,
-                                                                1.59, 1.39, -130), 52))
+          .andThen(drivetrain.followTrajectory(createStationTrajectory(21), 52))
           // Go to the loading station
           .andThen(new GoToNearestTagCommandHelper(tags).createCommand(drivetrain, right).withTimeout(1.5))
           .andThen(new IntakeCommand(intake))
@@ -236,9 +335,7 @@ public class AutoNoMouse
         // Commands to run from tag 22 on
         final Command after_22 =
           new SwerveToPositionCommand(drivetrain, 5.5, 2.1).withTimeout(1.5)
-          .andThen(drivetrain.followTrajectory(createTrajectory(true,
-                                                                5.5, 2.1,   -160,
-                                                                1.59, 1.39, -130), 52))
+          .andThen(drivetrain.followTrajectory(createStationTrajectory(22), 52))
           .andThen(new GoToNearestTagCommandHelper(tags).createCommand(drivetrain, right).withTimeout(1.5))
           .andThen(new IntakeCommand(intake))
           .andThen(new SwerveToPositionCommand(drivetrain, 2.97, 1.63).withTimeout(1.5))
@@ -255,9 +352,7 @@ public class AutoNoMouse
         // Commands to run from tag 20 on
         final Command after_20 =
           new SwerveToPositionCommand(drivetrain, 5.7, 5.9).withTimeout(1.5)
-          .andThen(drivetrain.followTrajectory(createTrajectory(true,
-                                                                5.7, 5.9,   150,
-                                                                1.6, 6.6, 180), -52))                                                      
+          .andThen(drivetrain.followTrajectory(createStationTrajectory(20), -52))
           .andThen(new GoToNearestTagCommandHelper(tags).createCommand(drivetrain, right).withTimeout(1.5))
           .andThen(new IntakeCommand(intake))
           .andThen(new SwerveToPositionCommand(drivetrain, 2.97, 6.43).withTimeout(1.5))
@@ -273,10 +368,7 @@ public class AutoNoMouse
 
         final Command after_10 =
           new SwerveToPositionCommand(drivetrain, 10.93, 4.0).withTimeout(1.5)
-          .andThen(drivetrain.followTrajectory(createTrajectory(true,
-                                                                10.93, 4.0,  -90,
-                                                                12.22, 1.6, -40,
-                                                                15.91, 1.39, -50), 126))                                                      
+          .andThen(drivetrain.followTrajectory(createStationTrajectory(10), 126))
           .andThen(new GoToNearestTagCommandHelper(tags).createCommand(drivetrain, right).withTimeout(1.5))
           .andThen(new IntakeCommand(intake))
           .andThen(new SwerveToPositionCommand(drivetrain, 14.53, 1.63).withTimeout(1.5))
@@ -292,9 +384,7 @@ public class AutoNoMouse
 
         final Command after_11 =
           new SwerveToPositionCommand(drivetrain, 12, 2.1).withTimeout(1.5)
-          .andThen(drivetrain.followTrajectory(createTrajectory(true,
-                                                                12, 2.1,   -20,
-                                                                15.91, 1.39, -50), 126))
+          .andThen(drivetrain.followTrajectory(createStationTrajectory(11), 126))
           .andThen(new GoToNearestTagCommandHelper(tags).createCommand(drivetrain, right).withTimeout(1.5))
           .andThen(new IntakeCommand(intake))
           .andThen(new SwerveToPositionCommand(drivetrain, 14.53, 1.63).withTimeout(1.5))
@@ -310,9 +400,7 @@ public class AutoNoMouse
 
         final Command after_9 =
           new SwerveToPositionCommand(drivetrain, 11.8, 5.9).withTimeout(1.5)
-          .andThen(drivetrain.followTrajectory(createTrajectory(true,
-                                                                11.8, 5.9, 30,
-                                                                15.9, 6.6, 0), -126))                                                      
+          .andThen(drivetrain.followTrajectory(createStationTrajectory(9), -126))
           .andThen(new GoToNearestTagCommandHelper(tags).createCommand(drivetrain, right).withTimeout(1.5))
           .andThen(new IntakeCommand(intake))
           .andThen(new SwerveToPositionCommand(drivetrain, 14.53, 6.43).withTimeout(1.5))
@@ -374,21 +462,13 @@ public class AutoNoMouse
       auto.setName("2(Forward & Back) 1.5m");
       auto.addCommands(new VariableWaitCommand());
       auto.addCommands(new SelectRelativeTrajectoryCommand(drivetrain));
-      Trajectory path = createTrajectory(true, 0, 0, 0,
-                                            1.50, 0, 0);
-      auto.addCommands(drivetrain.followTrajectory(path, 0).asProxy());
+      auto.addCommands(drivetrain.followTrajectory(createForward(1.5), 0).asProxy());
 
       auto.addCommands(new WaitCommand(2));
 
-      path = createTrajectory(true, 1.50, 0, 180,
-                                       0, 0, 180);
-      auto.addCommands(drivetrain.followTrajectory(path, 0).asProxy());
-      path = createTrajectory(true, 0, 0, 0,
-                                 1.50, 0, 0);
-      auto.addCommands(drivetrain.followTrajectory(path, 0).asProxy());
-      path = createTrajectory(true, 1.50, 0, 180,
-                                       0, 0, 180);
-      auto.addCommands(drivetrain.followTrajectory(path, 0).asProxy());
+      auto.addCommands(drivetrain.followTrajectory(createBack(1.5), 0).asProxy());
+      auto.addCommands(drivetrain.followTrajectory(createForward(1.5), 0).asProxy());
+      auto.addCommands(drivetrain.followTrajectory(createBack(1.5), 0).asProxy());
       autos.add(auto);
     }
 
@@ -416,11 +496,7 @@ public class AutoNoMouse
       auto.addCommands(new InstantCommand(() -> timer.restart()));
       // Trajectory can be relative to current position
       auto.addCommands(new SelectRelativeTrajectoryCommand(drivetrain));
-      Trajectory path = createTrajectory(true, 0.0, 0.0,   0.0,
-                                               2.0, 0.0,  90.0,
-                                               1.0, 0.5, 180.0,
-                                               0.0, 0.0, 180.0);
-      auto.addCommands(drivetrain.followTrajectory(path, 0));
+      auto.addCommands(drivetrain.followTrajectory(createTriangle(), 0));
       auto.addCommands(new InstantCommand(() -> System.out.printf("Time: %.1f sec\n", timer.get())));
       autos.add(auto);
     }
@@ -459,35 +535,24 @@ public class AutoNoMouse
       auto.addCommands(new VariableWaitCommand());
       auto.addCommands(new InstantCommand(() -> timer.restart()));
       // Drive from start positon to 1st drop
-      Trajectory path = createTrajectory(true, 8.02, 5.41, 180.0,
-                                               6.12, 4.01, 180.0);
-      auto.addCommands(drivetrain.followTrajectory(path, 180));
+      List<Trajectory> paths = createCoralRun();
+      auto.addCommands(drivetrain.followTrajectory(paths.get(0), 180));
       auto.addCommands(new PrintCommand("Drop pre-loaded coral"));
       auto.addCommands(new WaitCommand(1.0));
       // Pickup 2nd
       auto.addCommands(new PrintCommand("Open Intake"));
-      path = createTrajectory(true, 6.12, 4.01,  -80,
-                                    5.8,  1.6,  -140,
-                                    1.09, 1.02, -170);
-      auto.addCommands(drivetrain.followTrajectory(path, 50));
+      auto.addCommands(drivetrain.followTrajectory(paths.get(1), 50));
       auto.addCommands(new PrintCommand("Close Intake"));
       // Drop 2nd
-      path = createTrajectory(true, 1.09, 1.02, 20,
-                                    3.7, 2.6,  60);
-      auto.addCommands(drivetrain.followTrajectory(path, 60));
+      auto.addCommands(drivetrain.followTrajectory(paths.get(2), 60));
       auto.addCommands(new PrintCommand("Drop 2nd coral"));
       auto.addCommands(new WaitCommand(1.0));
       // Pickup 3rd
       auto.addCommands(new PrintCommand("Open Intake"));
-      path = createTrajectory(true, 3.7, 2.6,  -120,
-                                    1.09, 1.02, -130);
-      auto.addCommands(drivetrain.followTrajectory(path, 50));
+      auto.addCommands(drivetrain.followTrajectory(paths.get(3), 50));
       auto.addCommands(new PrintCommand("Close Intake"));
       // Drop 3nd
-      path = createTrajectory(true, 1.09, 1.02, 20,
-                                    2.6,  2.2, 90,
-                                    2.8,  4.0, 45);
-      auto.addCommands(drivetrain.followTrajectory(path, 0));
+      auto.addCommands(drivetrain.followTrajectory(paths.get(4), 0));
       auto.addCommands(new PrintCommand("Drop 3nd coral"));
       auto.addCommands(new WaitCommand(1.0));
 
@@ -499,14 +564,11 @@ public class AutoNoMouse
       auto.addCommands(new VariableWaitCommand());
       auto.addCommands(new SelectAbsoluteTrajectoryCommand(drivetrain, 9.355, 1.3, 0));
 
-      Trajectory path = createTrajectory(true, 9.355, 1.3, 0,
-                                                                11.55, 4, 0 );
-      auto.addCommands(drivetrain.followTrajectory(path, 0));
+      List<Trajectory> paths = createCoralRunRed();
+      auto.addCommands(drivetrain.followTrajectory(paths.get(0), 0));
       System.out.println("Drop Coral"
                           + "\n Open Intake");
-      path = createTrajectory(true, 11.55,6,0,
-                                                16,7.1, 25);
-      auto.addCommands(drivetrain.followTrajectory(path, 25));
+      auto.addCommands(drivetrain.followTrajectory(paths.get(1), 25));
 
       autos.add(auto);
     }
@@ -4,10 +4,6 @@
 
 package frc.robot;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
-
 // import org.photonvision.EstimatedRobotPose;
 import org.photonvision.PhotonCamera;
 import org.photonvision.PhotonPoseEstimator;
@@ -19,24 +15,56 @@ import edu.wpi.first.apriltag.AprilTagFieldLayout;
 // import edu.wpi.first.apriltag.AprilTagPoseEstimator;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Rotation3d;
 import edu.wpi.first.math.geometry.Transform3d;
 import edu.wpi.first.math.geometry.Translation3d;
 // import edu.wpi.first.net.PortForwarder;
 import edu.wpi.first.networktables.NetworkTableEntry;
+import edu.wpi.first.wpilibj.Notifier;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import frc.swervelib.SwerveDrivetrain;
-
-/** Helper for using a camera */
+import frc.tools.RingBuffer;
+
+/** Helper for using a camera
+ *
+ *  <p>A worker thread reads the camera results
+ *  and computes robot positions from the tags.
+ *  All tags in one frame are combined into one measurement
+ *  with standard deviations based on distance, ambiguity
+ *  and number of tags, see {@link PoseFusion}.
+ *  Measurements are passed to the robot loop via a RingBuffer.
+ *  {@link #updatePosition} in the robot loop then
+ *  only needs to hand them to the drivetrain.
+ */
 public class CameraHelper
 {
+  /** How often the worker checks for new camera results */
+  private static final double WORKER_PERIOD = 0.01;
+
+  /** Measurement: timestamp, x, y, heading [rad], std. dev. x, y, heading */
+  private static final int MEASUREMENT_SIZE = 7;
+
   private final AprilTagFieldLayout tags;
   private final PhotonCamera camera;
   private final Transform3d robotToCam;
   private final PhotonPoseEstimator estimator;
+  /** Used by worker to compute robot position from tags */
+  private final TagPoseTable tag_table;
+  private final double[] robot_pose = new double[3];
+  /** Used by worker to combine all tags in a frame */
+  private final PoseFusion fusion = new PoseFusion();
   private final NetworkTableEntry nt_flag;
   private int successes = 0;
 
+  /** Measurements passed from worker to robot loop */
+  private final RingBuffer measurements = new RingBuffer(32, MEASUREMENT_SIZE);
+  /** Measurement filled by worker */
+  private final double[] computed = new double[MEASUREMENT_SIZE];
+  /** Measurement read by robot loop */
+  private final double[] received = new double[MEASUREMENT_SIZE];
+  private final Notifier worker;
+
   /** @param tags Field info
    *  @param camera_name Camera name ("front") in photonvision network tablee ntries
    *  @param status_name Name used to show status on dashboard
@@ -70,18 +98,36 @@ public class CameraHelper
     // Prepare estimator
     // Which strategy?
     estimator = new PhotonPoseEstimator(tags, PoseStrategy.AVERAGE_BEST_TARGETS, robotToCam);
+
+    tag_table = new TagPoseTable(tags, robotToCam);
+
+    worker = new Notifier(this::processResults);
+    worker.setName("Camera " + camera_name);
+    worker.startPeriodic(WORKER_PERIOD);
   }
 
-  /** Call periodically to update drivetrain with camera info */
-  public void updatePosition(SwerveDrivetrain drivetrain)
+  /** Compute robot position from tag using WPILib transforms.
+   *  Robot code uses the faster {@link TagPoseTable}.
+   *
+   *  @param tag_pose Position of tag on field
+   *  @param camera_to_target Tag position as seen by camera
+   *  @param robot_to_cam Camera position on robot
+   *  @return Robot position on field
+   */
+  static Pose2d computeRobotPose(Pose3d tag_pose, Transform3d camera_to_target, Transform3d robot_to_cam)
+  {
+    // Transform from tag to camera, then from camera to center of robot
+    Pose3d pose = tag_pose.transformBy(camera_to_target.inverse());
+    pose = pose.transformBy(robot_to_cam.inverse());
+    return pose.toPose2d();
+  }
+
+  /** Called by worker to turn camera results into measurements */
+  private void processResults()
   {
-    --successes;
-    if (successes < 0)
-      successes = 0;
     if (! camera.isConnected())
     {
       // System.out.println("Camera " + camera.getName() + " is disconnected!!!");
-      nt_flag.setBoolean(successes > 0);
       return;
     }
 
@@ -97,43 +143,67 @@ public class CameraHelper
     //     successes = 50; // 1 second
     //   });
 
-    double timestamp = 0.0;
-    List<PhotonTrackedTarget> targets = new ArrayList<>();
     for (PhotonPipelineResult result : camera.getAllUnreadResults())
-      if (result.hasTargets())
-      {
-        for (PhotonTrackedTarget target : result.getTargets())
-          targets.add(target);
-        timestamp = result.getTimestampSeconds();
-      }
-    for (PhotonTrackedTarget target : targets)
     {
-      // How far is the target?
-      if (target == null  ||
-          target.bestCameraToTarget.getTranslation().getNorm() > 3.0)
-      {
-        // System.out.println("No best target");
+      if (! result.hasTargets())
         continue;
+      // Combine all tags in this frame into one measurement
+      fusion.reset();
+      for (PhotonTrackedTarget target : result.getTargets())
+      {
+        // How far is the target?
+        if (target == null)
+          continue;
+        double distance = target.bestCameraToTarget.getTranslation().getNorm();
+        if (distance > 3.0)
+        {
+          // System.out.println("No best target");
+          continue;
+        }
+
+        // Is that tag on the field?
+        if (! tag_table.hasTag(target.fiducialId))
+          continue;
+
+        // System.out.println(target.bestCameraToTarget);
+        tag_table.computeRobotPose(target.fiducialId, target.bestCameraToTarget, robot_pose);
+        fusion.add(robot_pose[0], robot_pose[1], robot_pose[2], distance, target.poseAmbiguity);
       }
-
-      // Where is that tag on the field?
-      Optional<Pose3d> tag_pose = tags.getTagPose(target.fiducialId);
-      if (tag_pose.isEmpty())
+      if (fusion.getCount() <= 0)
         continue;
 
-      // System.out.println(target.bestCameraToTarget);
-      // Transform from tag to camera, then from camera to center of robot
-      Pose3d pose = tag_pose.get();
-      pose = pose.transformBy(target.bestCameraToTarget.inverse());
-      pose = pose.transformBy(robotToCam.inverse());
-      Pose2d position = pose.toPose2d();
-      // System.out.println(target.getFiducialId() + " @ " + tag_pose + " -> " + position);
+      computed[0] = result.getTimestampSeconds();
+      computed[1] = fusion.getX();
+      computed[2] = fusion.getY();
+      computed[3] = fusion.getHeading();
+      computed[4] = fusion.getStdXY();
+      computed[5] = fusion.getStdXY();
+      computed[6] = fusion.getStdHeading();
+      // If robot loop falls behind, newest measurements are dropped
+      measurements.offer(computed);
+    }
+  }
+
+  /** Call periodically to update drivetrain with camera info
+   *
+   *  <p>Only passes measurements from the worker to the drivetrain.
+   *  Worker buffer is bounded, so the cost per call is limited.
+   */
+  public void updatePosition(SwerveDrivetrain drivetrain)
+  {
+    --successes;
+    if (successes < 0)
+      successes = 0;
+
+    while (measurements.poll(received))
+    {
+      Pose2d position = new Pose2d(received[1], received[2], new Rotation2d(received[3]));
 
       // For tests, force odometry to camera reading
       // drivetrain.setOdometry(position.getX(), position.getY(), position.getRotation().getDegrees());
 
       // For operation, smoothly update location with camera info
-      drivetrain.updateLocationFromCamera(position, timestamp);
+      drivetrain.updateLocationFromCamera(position, received[0], received[4], received[5], received[6]);
       successes = 50; // 1 second
     }
     nt_flag.setBoolean(successes > 0);
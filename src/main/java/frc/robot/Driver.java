@@ -3,11 +3,16 @@
 // the WPILib BSD license file in the root directory of this project.
 package frc.robot;
 
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.ctre.phoenix6.StatusSignal;
 import com.ctre.phoenix6.configs.OpenLoopRampsConfigs;
 import com.ctre.phoenix6.configs.TalonFXConfiguration;
 import com.ctre.phoenix6.hardware.TalonFX;
 import com.ctre.phoenix6.signals.NeutralModeValue;
 
+import edu.wpi.first.units.measure.Angle;
+import edu.wpi.first.units.measure.AngularVelocity;
+
 import frc.swervelib.DriverBase;
 
 /** Driver using Kraken */
@@ -17,6 +22,10 @@ public class Driver extends DriverBase
   private final static double METERS_PER_TURN = 0.04677860840234989;
 
   private final TalonFX motor;
+  private final StatusSignal<Angle> position;
+  private final StatusSignal<AngularVelocity> velocity;
+  /** Is somebody else refreshing the status signals? */
+  private boolean batched = false;
 
   /** @param index Driver index 0..3
    *  @param id CAN id
@@ -30,16 +39,34 @@ public class Driver extends DriverBase
     motor.getConfigurator().apply(config);    
     motor.clearStickyFaults();
     motor.setNeutralMode(NeutralModeValue.Brake);
+    position = motor.getPosition();
+    velocity = motor.getVelocity();
+  }
+
+  /** @return Status signals, for refreshing them together with others */
+  BaseStatusSignal[] getStatusSignals()
+  {
+    return new BaseStatusSignal[] { position, velocity };
   }
-  
+
+  /** Caller will from now on refresh the status signals, for example via BaseStatusSignal.refreshAll() */
+  void setBatched()
+  {
+    batched = true;
+  }
+
   protected double getRawPosition()
   {
-    return motor.getPosition().getValueAsDouble() * METERS_PER_TURN;
+    if (! batched)
+      position.refresh();
+    return position.getValueAsDouble() * METERS_PER_TURN;
   }
 
   protected double getRealSpeed()
   {
-    return motor.getVelocity().getValueAsDouble() * METERS_PER_TURN;
+    if (! batched)
+      velocity.refresh();
+    return velocity.getValueAsDouble() * METERS_PER_TURN;
   }
 
   public void setVoltage(double voltage)
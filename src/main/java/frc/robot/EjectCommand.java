@@ -10,6 +10,13 @@ public class EjectCommand extends Command
     private final Intake intake;
     private final Timer timer;
     private final NetworkTableEntry nt_speed;
+    /** Number of completed ejects, i.e. game pieces that should have been scored */
+    private static int ejected = 0;
+
+    static int getEjected()
+    {
+        return ejected;
+    }
 
     public EjectCommand(Intake intake)
     {
@@ -42,5 +49,7 @@ public class EjectCommand extends Command
     public void end(boolean interrupted)
     {
         intake.setVoltage(0);
+        if (! interrupted)
+            ++ejected;
     }
 }
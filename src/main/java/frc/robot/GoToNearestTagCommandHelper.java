@@ -3,7 +3,8 @@
 // the WPILib BSD license file in the root directory of this project.
 package frc.robot;
 
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 
 import edu.wpi.first.apriltag.AprilTag;
@@ -12,22 +13,23 @@ import edu.wpi.first.apriltag.AprilTagFields;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Transform2d;
-import edu.wpi.first.math.geometry.Translation2d;
-import edu.wpi.first.networktables.NetworkTableEntry;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj.smartdashboard.Field2d;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.DeferredCommand;
 import edu.wpi.first.wpilibj2.command.SequentialCommandGroup;
+import frc.swervelib.PlannedTrajectoryCommand;
 import frc.swervelib.RotateToHeadingCommand;
 import frc.swervelib.SwerveDrivetrain;
 import frc.swervelib.SwerveToPositionCommand;
+import frc.tools.TunableNumber;
 
 /** Helper for creating command that drives to the nearest useful tag
  *
  *  Compares robot location to all 'tags of interest',
  *  finds the closest one,
  *  tweaks destination a little for reef vs. pickup station,
- *  creates trajectory to get there.
+ *  creates trajectory to get there,
+ *  or uses a precomputed route from the {@link RouteTable}.
  *
  *  Does not directly use the camera,
  *  but relies on odometry knowing the current robot location,
@@ -35,39 +37,103 @@ import frc.swervelib.SwerveToPositionCommand;
  */
 public class GoToNearestTagCommandHelper
 {
-  // Reef tag IDs
-  private static final Set<Integer> reef_tags = Set.of( 6,  7,  8,  9, 10, 11,  // red reef
-                                                       17, 18, 19, 20, 21, 22); // blue reef
-  // Pickup station tag IDs
-  private static final Set<Integer> pickup_tags = Set.of( 1,  2,  // red pickup
-                                                         12, 13); // blue pickup
-  // All the tags of interest
-  private static final Set<Integer> tags_of_interest = new HashSet<>();
-
-  private static NetworkTableEntry nt_load_distance, nt_load_left, nt_reef_distance, nt_reef_left;
-
-  static
-  {
-    tags_of_interest.addAll(pickup_tags);
-    tags_of_interest.addAll(reef_tags);
-
-    nt_load_distance = SmartDashboard.getEntry("AutoLoadDist");
-    nt_load_left = SmartDashboard.getEntry("AutoLoadLeft");
-    nt_reef_distance = SmartDashboard.getEntry("AutoReefDist");
-    nt_reef_left = SmartDashboard.getEntry("AutoReefLeft");
-    nt_load_distance.setDefaultDouble(0);
-    nt_load_left.setDefaultDouble(0);
-    nt_reef_distance.setDefaultDouble(-0.1);
-    nt_reef_left.setDefaultDouble(0.03);
-  }
+  private static final TunableNumber nt_load_distance = new TunableNumber("AutoLoadDist", 0),
+                                     nt_load_left = new TunableNumber("AutoLoadLeft", 0),
+                                     nt_reef_distance = new TunableNumber("AutoReefDist", -0.1),
+                                     nt_reef_left = new TunableNumber("AutoReefLeft", 0.03);
+
+  // Index of the tags of interest, for the last used field layout
+  private static AprilTagFieldLayout index_layout = null;
+  private static TagIndex index = null;
 
-  // Info about all the tags on the field
-  private final AprilTagFieldLayout tags;
+  // Info about the tags of interest on the field
+  private final TagIndex tags;
 
   /** @param tags Information about all the april tags on the field */
   public GoToNearestTagCommandHelper(AprilTagFieldLayout tags)
   {
-    this.tags = tags;
+    this.tags = getIndex(tags);
+  }
+
+  /** @param tags Information about all the april tags on the field
+   *  @return Index of the tags of interest
+   */
+  public static synchronized TagIndex getIndex(AprilTagFieldLayout tags)
+  {
+    if (index_layout != tags)
+    {
+      index = new TagIndex(tags);
+      index_layout = tags;
+    }
+    return index;
+  }
+
+  // Destination for each tag in 'destinations_index', left and right column
+  private static TagIndex destinations_index = null;
+  private static Pose2d[][] destinations = null;
+  private static boolean destinations_shown = false;
+
+  /** Update destinations where the dashboard offsets changed
+   *  @param index Tags for which to get destinations
+   */
+  private static synchronized void updateDestinations(TagIndex index)
+  {
+    // Check all offsets, not just the first changed one, to reset their 'changed' state
+    boolean reef_changed = nt_reef_distance.hasChanged() | nt_reef_left.hasChanged();
+    boolean load_changed = nt_load_distance.hasChanged() | nt_load_left.hasChanged();
+    boolean all = destinations_index != index;
+    if (all)
+    {
+      destinations_index = index;
+      destinations = new Pose2d[index.size()][2];
+    }
+    else if (! (reef_changed || load_changed))
+      return;
+
+    for (int i=0; i<index.size(); ++i)
+    {
+      boolean reef = index.getTagType(i) == TagIndex.REEF;
+      if (all  ||  (reef ? reef_changed : load_changed))
+      {
+        destinations[i][0] = computeDestination(index.getTag(i), false);
+        destinations[i][1] = reef ? computeDestination(index.getTag(i), true)
+                                  : destinations[i][0];
+      }
+    }
+    destinations_shown = false;
+  }
+
+  /** @param index Tag index
+   *  @param tag Index of tag within the index
+   *  @param right_column Align with right column? Otherwise left
+   *  @return Our desired location relative to that tag
+   */
+  static synchronized Pose2d getDestination(TagIndex index, int tag, boolean right_column)
+  {
+    updateDestinations(index);
+    return destinations[tag][right_column ? 1 : 0];
+  }
+
+  /** Call periodically to update the destinations shown on the field
+   *  when the dashboard offsets are adjusted
+   *  @param field Field on which to show all destinations
+   */
+  public static synchronized void showDestinations(Field2d field)
+  {
+    if (index == null)
+      return;
+    updateDestinations(index);
+    if (destinations_shown)
+      return;
+    List<Pose2d> poses = new ArrayList<>();
+    for (int i=0; i<index.size(); ++i)
+    {
+      poses.add(destinations[i][0]);
+      if (destinations[i][1] != destinations[i][0])
+        poses.add(destinations[i][1]);
+    }
+    field.getObject("Destinations").setPoses(poses);
+    destinations_shown = true;
   }
 
   /** @param robot_pose Current robot position
@@ -75,28 +141,17 @@ public class GoToNearestTagCommandHelper
    */
   public static AprilTag findNearestTag(AprilTagFieldLayout tags, Pose2d robot_pose)
   {
-    double nearest = Double.MAX_VALUE;
-    AprilTag nearest_tag = null;
-    for (AprilTag tag : tags.getTags())
-      if (tags_of_interest.contains(tag.ID))
-      { // It's a tag of interest! Find the nearest one
-        Translation2d tag_pos = tag.pose.toPose2d().getTranslation();
-        double tag_distance =  tag_pos.getDistance(robot_pose.getTranslation());
-        if (tag_distance < nearest)
-        {
-          nearest = tag_distance;
-          nearest_tag = tag;
-        }
-      }
+    TagIndex index = getIndex(tags);
+    int nearest = index.findNearest(robot_pose.getX(), robot_pose.getY(), TagIndex.ANY_TYPE, TagIndex.ANY_SIDE);
     // System.out.println("Nearest tag: " + nearest_tag);
-    return nearest_tag;
+    return nearest < 0 ? null : index.getTag(nearest);
   }
 
   /** @param target_tag An april tag to which we want to drive
    *  @param right_column Align with right column? Otherwise left
    *  @return Our desired location relative to that tag
    */
-  private Pose2d computeDestination(AprilTag target_tag, boolean right_column)
+  private static Pose2d computeDestination(AprilTag target_tag, boolean right_column)
   {
     // Destination is fundamentally the tag
     Pose2d dest = target_tag.pose.toPose2d();
@@ -111,23 +166,23 @@ public class GoToNearestTagCommandHelper
     // }
     // else
     // Adjust for reef vs. pickup station
-    if (reef_tags.contains(target_tag.ID))
+    if (TagIndex.getType(target_tag.ID) == TagIndex.REEF)
     { // Rotate 180 to face the tag, not point away from the tag
       dest = dest.rotateAround(dest.getTranslation(), Rotation2d.fromDegrees(180));
 
       // .. and move back in X a little to stand in front of the tag.
       // Move a little in Y to select the left or right column of reef branches
-      dest = dest.transformBy(new Transform2d(-0.35 - nt_reef_distance.getDouble(0),
+      dest = dest.transformBy(new Transform2d(-0.35 - nt_reef_distance.get(),
                                               // "pipes ..are .. ~33 cm.. apart (center to center)"
-                                              right_column ? -0.35/2 + nt_reef_left.getDouble(0)
-                                                           : +0.35/2 + nt_reef_left.getDouble(0),
+                                              right_column ? -0.35/2 + nt_reef_left.get()
+                                                           : +0.35/2 + nt_reef_left.get(),
                                               Rotation2d.fromDegrees(0)));
     }
     else
     { // Keep back of robot to loading station,
       // move in X a little to stand in front & center of the tag.
-      dest = dest.transformBy(new Transform2d(0.4 + nt_load_distance.getDouble(0),
-                                              0.1 + nt_load_left.getDouble(0),
+      dest = dest.transformBy(new Transform2d(0.4 + nt_load_distance.get(),
+                                              0.1 + nt_load_left.get(),
                                               Rotation2d.fromDegrees(0)));
     }
     // System.out.println("Destination: " + dest);
@@ -142,8 +197,8 @@ public class GoToNearestTagCommandHelper
   private Command findTagAndComputeCommands(SwerveDrivetrain drivetrain, boolean right_column)
   {
     Pose2d robot_pose = drivetrain.getPose();
-    AprilTag tag = findNearestTag(tags, robot_pose);
-    Pose2d destination = computeDestination(tag, right_column);
+    int nearest = tags.findNearest(robot_pose.getX(), robot_pose.getY(), TagIndex.ANY_TYPE, TagIndex.ANY_SIDE);
+    Pose2d destination = getDestination(tags, nearest, right_column);
 
     SequentialCommandGroup sequence = new SequentialCommandGroup();
     sequence.addCommands(new RotateToHeadingCommand(drivetrain, destination.getRotation().getDegrees()));
@@ -163,6 +218,33 @@ public class GoToNearestTagCommandHelper
                                Set.of(drivetrain));
   }
 
+  /** @param drivetrain .. to use for driving
+   *  @param right_column Align with right column? Otherwise left
+   *  @return Command that plans a trajectory to the nearest tag in the background, then follows it
+   */
+  public Command createTrajectoryCommand(SwerveDrivetrain drivetrain, boolean right_column)
+  {
+    return createTrajectoryCommand(drivetrain, TagIndex.ANY_TYPE, right_column);
+  }
+
+  /** @param drivetrain .. to use for driving
+   *  @param types Tag types to consider: REEF, PICKUP or ANY_TYPE
+   *  @param right_column Align with right column? Otherwise left
+   *  @return Command that follows a precomputed route to the nearest tag of that type
+   *          when the robot is at a reef or station destination,
+   *          otherwise plans a trajectory in the background
+   */
+  public Command createTrajectoryCommand(SwerveDrivetrain drivetrain, int types, boolean right_column)
+  {
+    return new PlannedTrajectoryCommand(drivetrain, () ->
+    {
+      Pose2d robot_pose = drivetrain.getPose();
+      int nearest = tags.findNearest(robot_pose.getX(), robot_pose.getY(), types, TagIndex.ANY_SIDE);
+      return getDestination(tags, nearest, right_column);
+    },
+    (robot_pose, goal) -> RouteTable.find(tags, robot_pose, goal));
+  }
+
   /** Test code, can run without robot */
   public static void main(String[] args)
   {
@@ -170,8 +252,14 @@ public class GoToNearestTagCommandHelper
     Pose2d robot_pose = new Pose2d(4.07-0.5, 3.31-0.5, Rotation2d.fromDegrees(10));
 
     AprilTagFieldLayout tags = AprilTagFieldLayout.loadField(AprilTagFields.k2025ReefscapeWelded);
-    GoToNearestTagCommandHelper go = new GoToNearestTagCommandHelper(tags);
     AprilTag tag = GoToNearestTagCommandHelper.findNearestTag(tags, robot_pose);
-    go.computeDestination(tag, true);
+    System.out.println("Nearest tag " + tag.ID + ", destination " + computeDestination(tag, true));
+
+    // Nearest three blue reef tags
+    TagIndex index = getIndex(tags);
+    int[] nearest = new int[3];
+    int count = index.findNearest(robot_pose.getX(), robot_pose.getY(), TagIndex.REEF, TagIndex.BLUE, nearest);
+    for (int i=0; i<count; ++i)
+      System.out.println("Reef tag " + index.getTag(nearest[i]).ID);
   }
 }
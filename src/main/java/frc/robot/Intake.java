@@ -5,16 +5,18 @@ import com.ctre.phoenix6.configs.TalonFXConfiguration;
 import com.ctre.phoenix6.hardware.TalonFX;
 import com.ctre.phoenix6.signals.NeutralModeValue;
 
-import edu.wpi.first.networktables.NetworkTableEntry;
 import edu.wpi.first.wpilibj.DigitalInput;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.tools.LoopTiming;
+import frc.tools.Telemetry;
+import frc.tools.Telemetry.Priority;
 
 public class Intake extends SubsystemBase
 {
     private final TalonFX motor;
     private final DigitalInput sensor;
-    private final NetworkTableEntry nt_gamepiece;
+    private final Telemetry.Topic nt_gamepiece;
+    private final LoopTiming.Probe timing = LoopTiming.probe("Intake");
 
     public Intake()
     {
@@ -26,13 +28,15 @@ public class Intake extends SubsystemBase
         motor.setNeutralMode(NeutralModeValue.Brake);
 
         sensor = new DigitalInput(RobotMap.INTAKE_SENSOR);
-        nt_gamepiece = SmartDashboard.getEntry("Gamepiece");
+        nt_gamepiece = Telemetry.flag("Gamepiece", Priority.NORMAL);
     }
 
     @Override
     public void periodic()
     {
-        nt_gamepiece.setBoolean(hasGamePiece());
+        long start = timing.start();
+        nt_gamepiece.set(hasGamePiece());
+        timing.stop(start);
     }
 
     public boolean hasGamePiece()
@@ -11,11 +11,14 @@ import com.ctre.phoenix6.signals.NeutralModeValue;
 
 import edu.wpi.first.math.controller.ProfiledPIDController;
 import edu.wpi.first.math.trajectory.TrapezoidProfile.Constraints;
-import edu.wpi.first.networktables.NetworkTableEntry;
 import edu.wpi.first.wpilibj.RobotBase;
 import edu.wpi.first.wpilibj.RobotState;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.tools.LoopTiming;
+import frc.tools.Telemetry;
+import frc.tools.Telemetry.Priority;
+import frc.tools.TunableNumber;
 
 /** Lift that moves up/down
  *
@@ -59,7 +62,10 @@ public class Lift extends SubsystemBase
   private double bottom_offset = 0.0;
 
   /** Network table entries */
-  private NetworkTableEntry nt_height, nt_kg, nt_ks;
+  private TunableNumber nt_kg, nt_ks;
+  private Telemetry.Topic nt_height;
+
+  private final LoopTiming.Probe timing = LoopTiming.probe("Lift");
 
   /** PID */
   // private PIDController pid = new PIDController(17, 10, 0);
@@ -68,6 +74,9 @@ public class Lift extends SubsystemBase
 
   private double simulated_height = 0.0;
 
+  /** Last requested voltage */
+  private double voltage = 0.0;
+
   public Lift()
   {
     // Primary motor is the one we control
@@ -85,11 +94,9 @@ public class Lift extends SubsystemBase
     secondary_motor.setNeutralMode(NeutralModeValue.Brake);
     secondary_motor.setControl(new Follower(primary_motor.getDeviceID(), true));
 
-    nt_height = SmartDashboard.getEntry("Lift Height");
-    nt_kg = SmartDashboard.getEntry("Lift kg");
-    nt_ks = SmartDashboard.getEntry("Lift ks");
-    nt_kg.setDefaultDouble(0.3);
-    nt_ks.setDefaultDouble(0.0);
+    nt_height = Telemetry.number("Lift Height", 0.001, Priority.NORMAL);
+    nt_kg = new TunableNumber("Lift kg", 0.3);
+    nt_ks = new TunableNumber("Lift ks", 0.0);
     pid.setIZone(0.03);
     pid.setTolerance(0.02);
     SmartDashboard.putData("Lift PID", pid);
@@ -110,6 +117,7 @@ public class Lift extends SubsystemBase
   @Override
   public void periodic()
   {
+    long start = timing.start();
     // Enabled for the first time, never calibrated?
     if (! calibrated  &&  RobotState.isEnabled())
     {
@@ -119,7 +127,8 @@ public class Lift extends SubsystemBase
       calibrated = true;
       System.err.println("Calibrated lift bottom at " + bottom_offset + " revs");
     }
-    nt_height.setDouble(getHeight());
+    nt_height.set(getHeight());
+    timing.stop(start);
   }
 
   /** @return Lift height in meters */
@@ -133,9 +142,16 @@ public class Lift extends SubsystemBase
   /** @param voltage Lift voltage, positive for "up" */
   public void setVoltage(double voltage)
   {
+    this.voltage = voltage;
     primary_motor.setVoltage(-voltage);
   }
 
+  /** @return Last requested lift voltage */
+  public double getVoltage()
+  {
+    return voltage;
+  }
+
   public void setHeight(double desired_height)
   {
     if (RobotBase.isSimulation())
@@ -180,8 +196,8 @@ public class Lift extends SubsystemBase
     // ks  - Static gain, minimum voltage to get moving
     // PID - .. to correct height error
     double error = desired_height - height;
-    double voltage = nt_kg.getDouble(0.0)
-                   + nt_ks.getDouble(0.0) * Math.signum(error)
+    double voltage = nt_kg.get()
+                   + nt_ks.get() * Math.signum(error)
                    + pid.calculate(height, desired_height);
     if (voltage > VOLTAGE_LIMIT)
       voltage = VOLTAGE_LIMIT;
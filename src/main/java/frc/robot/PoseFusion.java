@@ -0,0 +1,93 @@
+// Copyright (c) FIRST Team 2393 and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+package frc.robot;
+
+/** Combine robot positions computed from several tags in one camera frame
+ *
+ *  <p>Each tag's position is weighted by its inverse variance.
+ *  The standard deviation of a tag's position grows with the square
+ *  of its distance and with its pose ambiguity.
+ *  The combined standard deviation gets smaller with each added tag.
+ */
+class PoseFusion
+{
+  /** Std. dev. of a single tag's position at 1 m, grows with distance^2 */
+  static final double STD_XY_AT_1M = 0.2, STD_HEADING_AT_1M = 0.3;
+
+  /** Tags with higher pose ambiguity are ignored */
+  static final double MAX_AMBIGUITY = 0.3;
+
+  /** How much ambiguity increases std. dev. (0.1 ambiguity -> factor 2) */
+  private static final double AMBIGUITY_FACTOR = 10.0;
+
+  private int count;
+  private double weights, x, y, sin, cos;
+
+  /** Start new frame */
+  void reset()
+  {
+    count = 0;
+    weights = x = y = sin = cos = 0.0;
+  }
+
+  /** @param robot_x Robot position computed from a tag, X [m]
+   *  @param robot_y .. Y [m]
+   *  @param robot_heading .. heading [rad]
+   *  @param distance Distance from camera to tag [m]
+   *  @param ambiguity Pose ambiguity of tag, 0..1
+   *  @return true if added, false if too ambiguous
+   */
+  boolean add(double robot_x, double robot_y, double robot_heading, double distance, double ambiguity)
+  {
+    if (ambiguity > MAX_AMBIGUITY)
+      return false;
+    // Relative std. dev., never less than the 1 m value
+    double scale = Math.max(1.0, distance*distance) * (1.0 + AMBIGUITY_FACTOR * Math.max(0.0, ambiguity));
+    double weight = 1.0 / (scale*scale);
+    ++count;
+    weights += weight;
+    x += weight * robot_x;
+    y += weight * robot_y;
+    // Average heading via unit vectors to handle wrap-around at +-180 degrees
+    sin += weight * Math.sin(robot_heading);
+    cos += weight * Math.cos(robot_heading);
+    return true;
+  }
+
+  /** @return Number of tags added since reset */
+  int getCount()
+  {
+    return count;
+  }
+
+  /** @return Combined X [m] */
+  double getX()
+  {
+    return x / weights;
+  }
+
+  /** @return Combined Y [m] */
+  double getY()
+  {
+    return y / weights;
+  }
+
+  /** @return Combined heading [rad] */
+  double getHeading()
+  {
+    return Math.atan2(sin, cos);
+  }
+
+  /** @return Std. dev. of combined X and Y [m] */
+  double getStdXY()
+  {
+    return STD_XY_AT_1M / Math.sqrt(weights);
+  }
+
+  /** @return Std. dev. of combined heading [rad] */
+  double getStdHeading()
+  {
+    return STD_HEADING_AT_1M / Math.sqrt(weights);
+  }
+}
@@ -3,12 +3,16 @@
 // the WPILib BSD license file in the root directory of this project.
 package frc.robot;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import edu.wpi.first.apriltag.AprilTagFieldLayout;
 import edu.wpi.first.apriltag.AprilTagFields;
 import edu.wpi.first.math.filter.SlewRateLimiter;
 import edu.wpi.first.math.trajectory.TrajectoryConfig;
 import edu.wpi.first.networktables.NetworkTableEntry;
 import edu.wpi.first.wpilibj.PowerDistribution;
+import edu.wpi.first.wpilibj.RobotBase;
 import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.Command;
@@ -22,6 +26,7 @@ import frc.swervelib.StopCommand;
 import frc.swervelib.SwerveDrivetrain;
 import frc.swervelib.SwerveOI;
 import frc.swervelib.SwerveToPositionCommand;
+import frc.swervelib.TrajectoryAnalytics;
 import frc.tools.ApplyAdjustableSettingCommand;
 import frc.tools.AutoTools;
 import frc.tools.CommandRobotBase;
@@ -35,12 +40,21 @@ public class Robot extends CommandRobotBase
   private final Command relswerve = new RelativeSwerveCommand(drivetrain);
   private final Command absswerve = new AbsoluteSwerveCommand(drivetrain);
   private final SendableChooser<Command> autos = new SendableChooser<>();
+  private final Map<String, Command> auto_commands = new LinkedHashMap<>();
+
+  /** Running without GUI, for example in the AutoRunner?
+   *  Then don't log data
+   */
+  static boolean headless = false;
 
   private final Lift lift = new Lift();
   private NetworkTableEntry nt_lift_setpoint;
 
   private final Intake intake = new Intake();
 
+  /** Log of robot data, null if it couldn't be created */
+  private RobotLog robot_log = null;
+
   // TODO pick correct field: k2025ReefscapeWelded, k2025ReefscapeAndyMark
   private final AprilTagFieldLayout tags = AprilTagFieldLayout.loadField(AprilTagFields.k2025ReefscapeWelded);
 
@@ -60,9 +74,16 @@ public class Robot extends CommandRobotBase
     SwerveOI.rotation_slew = new SlewRateLimiter(360);
     AutoTools.config = new TrajectoryConfig(4, 4);
     SwerveToPositionCommand.MAX_SPEED = 5;
+    // Motion profile that decelerates in time for the goal and finishes rotating at the same time
+    // is selected via "SwerveToPos_Profiled" on the dashboard until it's been checked on the robot
+    SwerveToPositionCommand.PROFILED = false;
+    // Simulate motors, slip and battery instead of modules that reach the desired state right away
+    if (RobotBase.isSimulation())
+      drivetrain.simulatePhysics();
 
     power.clearStickyFaults();
     power.resetTotalEnergy();
+    TrajectoryAnalytics.setEnergySupplier(power::getTotalEnergy);
     // TODO Display PD on Dashboard?
     // This results in frequent messages because PD is slow to update
     // SmartDashboard.putData("PowerPanel", power);
@@ -70,7 +91,10 @@ public class Robot extends CommandRobotBase
     OperatorInterface.reset();
     autos.setDefaultOption("Nothing", new PrintCommand("Do nothing"));
     for (Command auto : AutoNoMouse.createAutoCommands(drivetrain, tags, intake, lift))
+    {
       autos.addOption(auto.getName(), auto);
+      auto_commands.put(auto.getName(), auto);
+    }
     SmartDashboard.putData(autos);
     // Whenever something is selected, show its (optional) start position
     autos.onChange(selected -> AutoTools.indicateStart(drivetrain, selected));
@@ -106,10 +130,40 @@ public class Robot extends CommandRobotBase
     GoToNearestTagCommandHelper go = new GoToNearestTagCommandHelper(tags);
     OperatorInterface.auto_position_left().whileTrue(go.createCommand(drivetrain, false));
     OperatorInterface.auto_position_right().whileTrue(go.createCommand(drivetrain, true));
+    // Alternative that follows a trajectory planned in the background
+    SmartDashboard.putData("Trajectory To Tag", go.createTrajectoryCommand(drivetrain, false));
+    // Cycle between reef and station on precomputed routes
+    SmartDashboard.putData("Route To Station", go.createTrajectoryCommand(drivetrain, TagIndex.PICKUP, false));
+    SmartDashboard.putData("Route To Reef", go.createTrajectoryCommand(drivetrain, TagIndex.REEF, false));
+    if (! headless)
+      RouteTable.computeInBackground(GoToNearestTagCommandHelper.getIndex(tags));
 
     // Smart Dashboard for lift
     nt_lift_setpoint = SmartDashboard.getEntry("Lift Setpoint");
     nt_lift_setpoint.setDefaultDouble(0.0);
+
+    if (! headless)
+      try
+      {
+        robot_log = new RobotLog(drivetrain, lift, intake);
+      }
+      catch (Exception ex)
+      {
+        System.err.println("Cannot create robot log");
+        ex.printStackTrace();
+      }
+  }
+
+  /** @return Drivetrain */
+  SwerveDrivetrain getDrivetrain()
+  {
+    return drivetrain;
+  }
+
+  /** @return Auto-no-mouse commands by name */
+  Map<String, Command> getAutos()
+  {
+    return auto_commands;
   }
 
   @Override
@@ -123,6 +177,21 @@ public class Robot extends CommandRobotBase
     // Update position from cameras
     for (CameraHelper camera_helper : cameras)
       camera_helper.updatePosition(drivetrain);
+
+    // Show where auto-positioning would go
+    GoToNearestTagCommandHelper.showDestinations(drivetrain.getField());
+
+    if (robot_log != null)
+      robot_log.write();
+  }
+
+  @Override
+  public void disabledInit()
+  {
+    super.disabledInit();
+    TrajectoryAnalytics.dump();
+    if (robot_log != null)
+      robot_log.flush();
   }
 
   private void updateDriveMode()
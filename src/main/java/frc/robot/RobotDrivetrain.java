@@ -3,8 +3,14 @@
 // the WPILib BSD license file in the root directory of this project.
 package frc.robot;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.ctre.phoenix6.StatusSignal;
 import com.ctre.phoenix6.hardware.Pigeon2;
 
+import edu.wpi.first.units.measure.Angle;
 import frc.swervelib.SwerveDrivetrain;
 import frc.swervelib.SwerveModule;
 
@@ -12,25 +18,65 @@ import frc.swervelib.SwerveModule;
 public class RobotDrivetrain extends SwerveDrivetrain
 {
   private final Pigeon2 gyro = new Pigeon2(0);
+  private final StatusSignal<Angle> yaw = gyro.getYaw();
+
+  /** Status signals of gyro and all modules, refreshed in one batch */
+  private final BaseStatusSignal[] signals;
 
   public RobotDrivetrain()
+  {
+    this(new Rotator[]
+         {
+           new Rotator(0, RobotMap.FRONT_LEFT_ROTATE,  RobotMap.FRONT_LEFT_ANGLE, 126.1),
+           new Rotator(1, RobotMap.FRONT_RIGHT_ROTATE, RobotMap.FRONT_RIGHT_ANGLE, 128),
+           new Rotator(2, RobotMap.BACK_RIGHT_ROTATE,  RobotMap.BACK_RIGHT_ANGLE, -98),
+           new Rotator(3, RobotMap.BACK_LEFT_ROTATE,   RobotMap.BACK_LEFT_ANGLE, -140)
+         },
+         new Driver[]
+         {
+           new Driver (0, RobotMap.FRONT_LEFT_DRIVE),
+           new Driver (1, RobotMap.FRONT_RIGHT_DRIVE),
+           new Driver (2, RobotMap.BACK_RIGHT_DRIVE),
+           new Driver (3, RobotMap.BACK_LEFT_DRIVE)
+         });
+  }
+
+  private RobotDrivetrain(Rotator[] rotators, Driver[] drivers)
   {
     super(0.53,
           0.53,
-          new SwerveModule(new Rotator(0, RobotMap.FRONT_LEFT_ROTATE,  RobotMap.FRONT_LEFT_ANGLE, 126.1),
-                           new Driver (0, RobotMap.FRONT_LEFT_DRIVE)),
-          new SwerveModule(new Rotator(1, RobotMap.FRONT_RIGHT_ROTATE, RobotMap.FRONT_RIGHT_ANGLE, 128),
-                           new Driver (1, RobotMap.FRONT_RIGHT_DRIVE)),
-          new SwerveModule(new Rotator(2, RobotMap.BACK_RIGHT_ROTATE,  RobotMap.BACK_RIGHT_ANGLE, -98),
-                           new Driver (2, RobotMap.BACK_RIGHT_DRIVE)),
-          new SwerveModule(new Rotator(3, RobotMap.BACK_LEFT_ROTATE,   RobotMap.BACK_LEFT_ANGLE, -140),
-                           new Driver (3, RobotMap.BACK_LEFT_DRIVE))
+          new SwerveModule(rotators[0], drivers[0]),
+          new SwerveModule(rotators[1], drivers[1]),
+          new SwerveModule(rotators[2], drivers[2]),
+          new SwerveModule(rotators[3], drivers[3])
           );
+
+    List<BaseStatusSignal> all = new ArrayList<>();
+    all.add(yaw);
+    for (Rotator rotator : rotators)
+    {
+      all.addAll(List.of(rotator.getStatusSignals()));
+      rotator.setBatched();
+    }
+    for (Driver driver : drivers)
+    {
+      all.addAll(List.of(driver.getStatusSignals()));
+      driver.setBatched();
+    }
+    signals = all.toArray(new BaseStatusSignal[all.size()]);
+  }
+
+  @Override
+  protected void refreshSensors()
+  {
+    // Read gyro and all module sensors in one call
+    BaseStatusSignal.refreshAll(signals);
   }
 
   public double getRawHeading()
   {
-    return gyro.getYaw().getValueAsDouble();
+    // Refreshed in refreshSensors()
+    return yaw.getValueAsDouble();
   }
 
   public double getPitch()
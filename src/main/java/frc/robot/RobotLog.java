@@ -0,0 +1,235 @@
+// Copyright (c) FIRST Team 2393 and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+package frc.robot;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.swervelib.SwerveDrivetrain;
+import frc.swervelib.SwerveModule;
+import frc.tools.BinaryLog;
+
+/** Log of robot data, one record per period
+ *
+ *  <p>Logs module angles, speeds, distances and setpoints, pose, gyro,
+ *  lift, intake, battery, camera updates and running commands
+ *  to a {@link BinaryLog} on a USB stick, if there is one,
+ *  otherwise in a 'logs' folder of the operating directory.
+ *  Convert to CSV on the desktop via BinaryLog.main,
+ *  or replay via LogReplay.
+ *
+ *  <p>Only logs while enabled. The log file is created when first enabled,
+ *  so booting the robot without enabling it doesn't leave a file.
+ *  Without USB stick, the roboRIO only keeps the last few log files,
+ *  and each file is limited in size.
+ */
+public class RobotLog
+{
+  /** Limits for logs on the roboRIO: Number of files,
+   *  size of all files and of each file [bytes]
+   */
+  public static int MAX_FILES = 10;
+  public static long MAX_BYTES = 100_000_000, MAX_FILE_BYTES = 20_000_000;
+
+  private final SwerveDrivetrain drivetrain;
+  private final Lift lift;
+  private final Intake intake;
+  private final List<String> channels = new ArrayList<>();
+  private final int modules, pose, lift_channel, intake_channel, battery, vision;
+
+  /** Directory for log files, is it limited to MAX_FILES etc.? */
+  private final File dir;
+  private final boolean limited;
+
+  /** Log, created when first enabled */
+  private BinaryLog log = null;
+  private long max_records;
+  private boolean failed = false, full = false;
+
+  /** @param drivetrain Drivetrain
+   *  @param lift Lift
+   *  @param intake Intake
+   *  @throws Exception on error
+   */
+  public RobotLog(SwerveDrivetrain drivetrain, Lift lift, Intake intake) throws Exception
+  {
+    this.drivetrain = drivetrain;
+    this.lift = lift;
+    this.intake = intake;
+
+    modules = channels.size();
+    for (int i=0; i<drivetrain.getModuleCount(); ++i)
+    {
+      channels.add("Angle" + i);
+      channels.add("Speed" + i);
+      channels.add("Distance" + i);
+      channels.add("AngleSetpt" + i);
+      channels.add("SpeedSetpt" + i);
+    }
+    pose = channels.size();
+    channels.add("X");
+    channels.add("Y");
+    channels.add("Heading");
+    channels.add("Gyro");
+    lift_channel = channels.size();
+    channels.add("Lift Height");
+    channels.add("Lift Voltage");
+    intake_channel = channels.size();
+    channels.add("Gamepiece");
+    battery = channels.size();
+    channels.add("Battery");
+    vision = channels.size();
+    channels.add("Vision Updates");
+    channels.add("Vision X");
+    channels.add("Vision Y");
+    channels.add("Vision Heading");
+    channels.add("Vision Age");
+    channels.add("Vision StdXY");
+    channels.add("Vision StdHeading");
+
+    File usb = new File("/u");
+    limited = ! usb.canWrite();
+    dir = limited ? new File(Filesystem.getOperatingDirectory(), "logs") : usb;
+    // Record: Type, timestamp, channels
+    max_records = limited ? MAX_FILE_BYTES / (1 + 8 + 4*channels.size()) : Long.MAX_VALUE;
+
+    CommandScheduler scheduler = CommandScheduler.getInstance();
+    scheduler.onCommandInitialize(command -> event(command.getName(), true));
+    scheduler.onCommandFinish(command -> event(command.getName(), false));
+    scheduler.onCommandInterrupt(command -> event(command.getName(), false));
+  }
+
+  /** @param name Command name
+   *  @param start Start or end?
+   */
+  private void event(String name, boolean start)
+  {
+    if (log != null)
+      log.event(Timer.getFPGATimestamp(), name, start);
+  }
+
+  /** Create log file, removing old ones on the roboRIO
+   *  @return true when log file was created
+   */
+  private boolean open()
+  {
+    if (failed)
+      return false;
+    try
+    {
+      dir.mkdirs();
+      if (limited)
+        removeOldLogs(dir);
+      String name = "robot_" + new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date()) + ".bin";
+      log = new BinaryLog(new File(dir, name), channels);
+      System.out.println("Logging to " + log.getFile());
+      return true;
+    }
+    catch (Exception ex)
+    {
+      failed = true;
+      System.err.println("Cannot create robot log in " + dir);
+      ex.printStackTrace();
+      return false;
+    }
+  }
+
+  /** Remove the oldest log files to make room for a new one
+   *  @param dir Directory with log files
+   */
+  static void removeOldLogs(File dir)
+  {
+    File[] files = dir.listFiles((d, name) -> name.startsWith("robot_")  &&  name.endsWith(".bin"));
+    if (files == null)
+      return;
+    // Names contain date and time, so they sort from oldest to newest.
+    // File is created when enabled, by then the roboRIO has the time from the driver station.
+    Arrays.sort(files);
+    long total = 0;
+    for (File file : files)
+      total += file.length();
+    for (int i=0; i<files.length; ++i)
+    {
+      if (files.length - i < MAX_FILES  &&  total + MAX_FILE_BYTES <= MAX_BYTES)
+        break;
+      total -= files[i].length();
+      if (files[i].delete())
+        System.out.println("Removed old log " + files[i]);
+    }
+  }
+
+  /** Call once per period to log the current values */
+  public void write()
+  {
+    if (DriverStation.isDisabled())
+      return;
+    if (log == null  &&  !open())
+      return;
+    if (log.getRecords() >= max_records)
+    {
+      if (! full)
+        System.err.println("Log " + log.getFile() + " reached " + MAX_FILE_BYTES + " bytes, stopped logging");
+      full = true;
+      return;
+    }
+
+    for (int i=0; i<drivetrain.getModuleCount(); ++i)
+    {
+      SwerveModule module = drivetrain.getModule(i);
+      int channel = modules + 5*i;
+      log.set(channel,   module.getDegrees());
+      log.set(channel+1, module.getSpeed());
+      log.set(channel+2, module.getDistance());
+      log.set(channel+3, module.getDesiredDegrees());
+      log.set(channel+4, module.getDesiredSpeed());
+    }
+
+    Pose2d position = drivetrain.getPose();
+    log.set(pose,   position.getX());
+    log.set(pose+1, position.getY());
+    log.set(pose+2, position.getRotation().getDegrees());
+    log.set(pose+3, drivetrain.getSnapshot().getRawHeading());
+
+    log.set(lift_channel,   lift.getHeight());
+    log.set(lift_channel+1, lift.getVoltage());
+    log.set(intake_channel, intake.hasGamePiece() ? 1 : 0);
+    log.set(battery, RobotController.getBatteryVoltage());
+
+    double now = Timer.getFPGATimestamp();
+    Pose2d camera = drivetrain.getLastVisionPose();
+    log.set(vision, drivetrain.getVisionUpdates());
+    if (camera != null)
+    {
+      log.set(vision+1, camera.getX());
+      log.set(vision+2, camera.getY());
+      log.set(vision+3, camera.getRotation().getDegrees());
+      // Age rather than timestamp, which a float can't hold as precisely
+      log.set(vision+4, now - drivetrain.getLastVisionTime());
+      log.set(vision+5, drivetrain.getLastVisionStdXY());
+      log.set(vision+6, drivetrain.getLastVisionStdHeading());
+    }
+
+    log.write(now);
+  }
+
+  /** Write what's been logged so far, for example when disabled */
+  public void flush()
+  {
+    if (log == null)
+      return;
+    log.flush();
+    if (log.getDropped() > 0)
+      System.err.println("Log dropped " + log.getDropped() + " records");
+  }
+}
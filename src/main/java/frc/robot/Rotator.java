@@ -3,6 +3,8 @@
 // the WPILib BSD license file in the root directory of this project.
 package frc.robot;
 
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.ctre.phoenix6.StatusSignal;
 import com.ctre.phoenix6.configs.CANcoderConfiguration;
 import com.ctre.phoenix6.configs.MotorOutputConfigs;
 import com.ctre.phoenix6.configs.OpenLoopRampsConfigs;
@@ -13,6 +15,8 @@ import com.ctre.phoenix6.signals.InvertedValue;
 import com.ctre.phoenix6.signals.NeutralModeValue;
 import com.ctre.phoenix6.signals.SensorDirectionValue;
 
+import edu.wpi.first.units.measure.Angle;
+
 import frc.swervelib.RotatorBase;
 
 /** Rotator using Kraken and CANcoder */
@@ -21,6 +25,9 @@ public class Rotator extends RotatorBase
   private final double DEG_PER_TURN = 360.0;
   private final TalonFX motor;
   private final CANcoder encoder;
+  private final StatusSignal<Angle> angle;
+  /** Is somebody else refreshing the status signal? */
+  private boolean batched = false;
 
   /** Construct Rotator
    *  @param index Rotator index 0..3
@@ -47,12 +54,27 @@ public class Rotator extends RotatorBase
                         .withMagnetOffset(0.0)
                         .withSensorDirection(SensorDirectionValue.CounterClockwise_Positive);
     encoder.getConfigurator().apply(configs);
+    angle = encoder.getAbsolutePosition();
+  }
+
+  /** @return Status signals, for refreshing them together with others */
+  BaseStatusSignal[] getStatusSignals()
+  {
+    return new BaseStatusSignal[] { angle };
+  }
+
+  /** Caller will from now on refresh the status signals, for example via BaseStatusSignal.refreshAll() */
+  void setBatched()
+  {
+    batched = true;
   }
 
   @Override
   public double getRawDegrees()
   {
-    return encoder.getAbsolutePosition().getValueAsDouble() * DEG_PER_TURN;
+    if (! batched)
+      angle.refresh();
+    return angle.getValueAsDouble() * DEG_PER_TURN;
   }
 
   @Override
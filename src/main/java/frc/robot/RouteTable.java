@@ -0,0 +1,287 @@
+// Copyright (c) FIRST Team 2393 and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+package frc.robot;
+
+import java.io.File;
+
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.apriltag.AprilTagFields;
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.trajectory.Trajectory;
+import edu.wpi.first.wpilibj.Filesystem;
+import frc.swervelib.PlannedTrajectoryCommand;
+import frc.tools.AutoTools;
+import frc.tools.TrajectoryCache;
+import frc.tools.TrajectoryPlanner;
+
+/** Precomputed routes between reef and coral station destinations
+ *
+ *  <p>The destinations in front of the reef faces and the coral stations
+ *  are fixed, so the routes between them can be planned ahead of time:
+ *  For each alliance, from each reef face and column to each station
+ *  and back, around the reef by the field planner,
+ *  at the speed and acceleration of the {@link PlannedTrajectoryCommand}.
+ *
+ *  <p>The robot computes the routes at startup on a background thread.
+ *  Their destinations depend on offsets that can be adjusted on the dashboard,
+ *  so they're computed with the values of the robot, not on the desktop.
+ *  Routes may also be read from a {@link TrajectoryCache} file in the deploy directory,
+ *  see {@link #main}.
+ *  Their key includes the destinations, speed limits and the
+ *  obstacles and settings of the field planner,
+ *  so when those are adjusted, outdated routes are simply not found.
+ *
+ *  <p>Once computed, routes are indexed by the tag and column of their start and end,
+ *  so the robot loop finds them without searching all destinations.
+ *  A goal that's no longer a destination of the table, because the offsets
+ *  were adjusted after computing the routes, isn't found
+ *  and the command plans the move as before.
+ *  When the robot is a little off from where the route starts,
+ *  it first moves there on a straight line.
+ */
+public class RouteTable
+{
+  /** Robot needs to be this close to the start of a route to use it [m] */
+  public static double TOLERANCE = 0.2;
+
+  /** When the robot is further than this from the start of a route,
+   *  first move to the start on a straight line [m]
+   */
+  public static double STRAIGHT_START = 0.02;
+
+  private static final TrajectoryCache routes = new TrajectoryCache(new File(Filesystem.getDeployDirectory(), "routes.bin"));
+
+  /** Routes indexed by destination, see {@link #getSlot} */
+  private static class Table
+  {
+    /** Tags of the destinations */
+    final TagIndex index;
+
+    /** Destination of each slot when routes were computed, <code>null</code> for unused slots */
+    final Pose2d[] destinations;
+
+    /** Route from one slot to another, <code>null</code> if there is none */
+    final Trajectory[][] routes;
+
+    Table(TagIndex index)
+    {
+      this.index = index;
+      destinations = new Pose2d[2 * index.size()];
+      routes = new Trajectory[destinations.length][destinations.length];
+    }
+  }
+
+  /** Routes of the last {@link #compute}, <code>null</code> until available */
+  private static volatile Table table = null;
+
+  /** Has a missing route been reported? */
+  private static boolean warned = false;
+
+  /** @param tag Index of tag within the index
+   *  @param right_column Right column? Otherwise left
+   *  @return Slot of that destination in the table
+   */
+  private static int getSlot(int tag, boolean right_column)
+  {
+    return 2 * tag + (right_column ? 1 : 0);
+  }
+
+  /** @param known Table of routes
+   *  @param pose Position
+   *  @param tolerance Max. distance from destination [m]
+   *  @return Slot of the destination nearest to the position, -1 if none within tolerance
+   */
+  private static int findSlot(Table known, Pose2d pose, double tolerance)
+  {
+    int tag = known.index.findNearest(pose.getX(), pose.getY(), TagIndex.ANY_TYPE, TagIndex.ANY_SIDE);
+    if (tag < 0)
+      return -1;
+    int slot = -1;
+    double distance = tolerance;
+    for (int column=0; column<2; ++column)
+    {
+      Pose2d destination = known.destinations[getSlot(tag, column > 0)];
+      if (destination == null)
+        continue;
+      double d = destination.getTranslation().getDistance(pose.getTranslation());
+      if (d <= distance)
+      {
+        slot = getSlot(tag, column > 0);
+        distance = d;
+      }
+    }
+    return slot;
+  }
+
+  /** @param from Start of route
+   *  @param to End of route
+   *  @return Key for the route
+   */
+  private static long computeKey(Pose2d from, Pose2d to)
+  {
+    return TrajectoryCache.computeKey(AutoTools.field.getKey(),
+                                      TrajectoryPlanner.SHORT_MOVE,
+                                      PlannedTrajectoryCommand.MAX_SPEED,
+                                      PlannedTrajectoryCommand.ACCEL,
+                                      from.getX(), from.getY(),
+                                      to.getX(), to.getY());
+  }
+
+  /** @param index Tags with destinations
+   *  @param robot_pose Current robot position
+   *  @param goal Destination
+   *  @return Precomputed route from where the robot is to the goal, or <code>null</code>
+   */
+  public static Trajectory find(TagIndex index, Pose2d robot_pose, Pose2d goal)
+  {
+    Table known = table;
+    int from = -1, to = -1;
+    if (known != null  &&  known.index == index)
+    {
+      // Route starts at the destination that's closest to the robot
+      from = findSlot(known, robot_pose, TOLERANCE);
+      if (from < 0)
+        return null;
+      // .. and needs to end right at the goal
+      to = findSlot(known, goal, 0.001);
+    }
+    Trajectory route = to < 0 ? null : known.routes[from][to];
+    if (route == null)
+    {
+      if (! warned)
+      {
+        System.err.println("No precomputed route, routes are still being computed or destinations changed");
+        warned = true;
+      }
+      return null;
+    }
+
+    // Move from where the robot actually is to the start of the route
+    if (known.destinations[from].getTranslation().getDistance(robot_pose.getTranslation()) > STRAIGHT_START)
+      route = TrajectoryPlanner.prependStraightLine(robot_pose, route,
+                                                    PlannedTrajectoryCommand.MAX_SPEED,
+                                                    PlannedTrajectoryCommand.ACCEL);
+    return route;
+  }
+
+  /** @param from Start of route
+   *  @param to End of route
+   *  @return Route from the cache, generated if it wasn't known
+   */
+  private static Trajectory add(Pose2d from, Pose2d to)
+  {
+    // Generate without holding the lock of the cache
+    long key = computeKey(from, to);
+    Trajectory route = routes.find(key);
+    if (route == null)
+    {
+      route = TrajectoryPlanner.createTrajectory(from, to,
+                                                 PlannedTrajectoryCommand.MAX_SPEED,
+                                                 PlannedTrajectoryCommand.ACCEL);
+      routes.put(key, route);
+    }
+    return route;
+  }
+
+  /** Compute all routes, reading those that are already known from the file
+   *  @param index Tags with destinations
+   *  @return Number of routes
+   */
+  public static int compute(TagIndex index)
+  {
+    Table computed = new Table(index);
+    int count = 0;
+    for (int reef=0; reef<index.size(); ++reef)
+      if (index.getTagType(reef) == TagIndex.REEF)
+        for (int station=0; station<index.size(); ++station)
+          if (index.getTagType(station) == TagIndex.PICKUP  &&
+              index.getTagSide(station) == index.getTagSide(reef))
+          {
+            int load = getSlot(station, false);
+            computed.destinations[load] = GoToNearestTagCommandHelper.getDestination(index, station, false);
+            for (int column=0; column<2; ++column)
+            {
+              int score = getSlot(reef, column > 0);
+              computed.destinations[score] = GoToNearestTagCommandHelper.getDestination(index, reef, column > 0);
+              computed.routes[score][load] = add(computed.destinations[score], computed.destinations[load]);
+              computed.routes[load][score] = add(computed.destinations[load], computed.destinations[score]);
+              count += 2;
+            }
+          }
+    // Publish the complete table to the robot loop
+    table = computed;
+    return count;
+  }
+
+  /** Compute all routes on a low priority background thread
+   *  @param index Tags with destinations
+   */
+  public static void computeInBackground(TagIndex index)
+  {
+    Thread thread = new Thread(() ->
+    {
+      long start = System.nanoTime();
+      int count = compute(index);
+      System.out.format("%d routes, %d computed in %.1f s\n",
+                        count, routes.getGenerated(), (System.nanoTime() - start) * 1e-9);
+    }, "RouteTable");
+    thread.setDaemon(true);
+    thread.setPriority(Thread.MIN_PRIORITY);
+    thread.start();
+  }
+
+  /** Compute all routes and save them when any had to be generated.
+   *  When deployed, the robot then reads them from the file.
+   *  @param index Tags with destinations
+   */
+  public static void save(TagIndex index)
+  {
+    compute(index);
+    if (routes.getGenerated() <= 0)
+      return;
+    try
+    {
+      routes.save();
+    }
+    catch (Exception ex)
+    {
+      System.err.println("Cannot save routes");
+      ex.printStackTrace();
+    }
+  }
+
+  /** Compute routes and update the file in the deploy directory,
+   *  run on desktop from the project directory
+   *  @param args Unused
+   */
+  public static void main(String[] args)
+  {
+    // Cache checks if it runs in simulation
+    HAL.initialize(500, 0);
+    TagIndex index = GoToNearestTagCommandHelper.getIndex(AprilTagFieldLayout.loadField(AprilTagFields.k2025ReefscapeWelded));
+
+    long start = System.nanoTime();
+    int count = compute(index);
+    double elapsed = (System.nanoTime() - start) * 1e-9;
+    System.out.format("%d routes, %d generated in %.2f s\n", count, routes.getGenerated(), elapsed);
+    save(index);
+
+    // From the left column of the first reef face to its first coral station
+    for (int i=0; i<index.size(); ++i)
+      if (index.getTagType(i) == TagIndex.REEF)
+      {
+        Pose2d from = GoToNearestTagCommandHelper.getDestination(index, i, false);
+        int station = index.findNearest(from.getX(), from.getY(), TagIndex.PICKUP, index.getTagSide(i));
+        Pose2d to = GoToNearestTagCommandHelper.getDestination(index, station, false);
+        start = System.nanoTime();
+        Trajectory route = find(index, from, to);
+        System.out.format("Tag %d to tag %d: %.2f s, found in %.1f us\n",
+                          index.getTag(i).ID, index.getTag(station).ID, route.getTotalTimeSeconds(),
+                          (System.nanoTime() - start) * 1e-3);
+        break;
+      }
+    System.exit(0);
+  }
+}
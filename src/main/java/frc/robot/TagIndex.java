@@ -0,0 +1,170 @@
+// Copyright (c) FIRST Team 2393 and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+package frc.robot;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.wpi.first.apriltag.AprilTag;
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+
+/** Index of the reef and pickup station tags for finding the nearest one
+ *
+ *  <p>Built once, then read-only, so it can be shared by threads.
+ *  With only 16 tags of interest, a scan over primitive arrays
+ *  is faster than a tree or grid would be.
+ *  Queries don't allocate memory.
+ */
+public class TagIndex
+{
+  /** Tag types */
+  public static final int REEF = 1, PICKUP = 2, ANY_TYPE = REEF | PICKUP;
+
+  /** Alliance sides */
+  public static final int RED = 1, BLUE = 2, ANY_SIDE = RED | BLUE;
+
+  // Reef tag IDs, 6-11 are red, 17-22 blue
+  private static final int[] reef_ids = { 6,  7,  8,  9, 10, 11,
+                                         17, 18, 19, 20, 21, 22 };
+  // Pickup station tag IDs, 1-2 are red, 12-13 blue
+  private static final int[] pickup_ids = { 1,  2,
+                                           12, 13 };
+
+  private final AprilTag[] tags;
+  private final double[] x, y;
+  private final int[] type, side;
+
+  /** @param layout Information about all the april tags on the field */
+  public TagIndex(AprilTagFieldLayout layout)
+  {
+    List<AprilTag> list = new ArrayList<>();
+    for (AprilTag tag : layout.getTags())
+      if (getType(tag.ID) != 0)
+        list.add(tag);
+    int n = list.size();
+    tags = list.toArray(new AprilTag[n]);
+    x = new double[n];
+    y = new double[n];
+    type = new int[n];
+    side = new int[n];
+    for (int i=0; i<n; ++i)
+    {
+      x[i] = tags[i].pose.getX();
+      y[i] = tags[i].pose.getY();
+      type[i] = getType(tags[i].ID);
+      side[i] = tags[i].ID <= 11 ? RED : BLUE;
+    }
+  }
+
+  /** @param id Tag ID
+   *  @return REEF, PICKUP or 0
+   */
+  public static int getType(int id)
+  {
+    for (int reef : reef_ids)
+      if (id == reef)
+        return REEF;
+    for (int pickup : pickup_ids)
+      if (id == pickup)
+        return PICKUP;
+    return 0;
+  }
+
+  /** @return Number of tags in index */
+  public int size()
+  {
+    return tags.length;
+  }
+
+  /** @param index Index 0 .. size()-1
+   *  @return Tag
+   */
+  public AprilTag getTag(int index)
+  {
+    return tags[index];
+  }
+
+  /** @param index Index 0 .. size()-1
+   *  @return REEF or PICKUP
+   */
+  public int getTagType(int index)
+  {
+    return type[index];
+  }
+
+  /** @param index Index 0 .. size()-1
+   *  @return RED or BLUE
+   */
+  public int getTagSide(int index)
+  {
+    return side[index];
+  }
+
+  private boolean matches(int i, int types, int sides)
+  {
+    return (type[i] & types) != 0  &&  (side[i] & sides) != 0;
+  }
+
+  /** @param robot_x Robot position [m]
+   *  @param robot_y Robot position [m]
+   *  @param types Tag types to consider: REEF, PICKUP or ANY_TYPE
+   *  @param sides Alliance sides to consider: RED, BLUE or ANY_SIDE
+   *  @return Index of nearest tag, -1 if none matches
+   */
+  public int findNearest(double robot_x, double robot_y, int types, int sides)
+  {
+    int nearest = -1;
+    double nearest_dist2 = Double.MAX_VALUE;
+    for (int i=0; i<tags.length; ++i)
+      if (matches(i, types, sides))
+      {
+        double dist2 = getDistance2(i, robot_x, robot_y);
+        if (dist2 < nearest_dist2)
+        {
+          nearest_dist2 = dist2;
+          nearest = i;
+        }
+      }
+    return nearest;
+  }
+
+  /** Find the k nearest tags, for example to have a fallback
+   *  @param robot_x Robot position [m]
+   *  @param robot_y Robot position [m]
+   *  @param types Tag types to consider: REEF, PICKUP or ANY_TYPE
+   *  @param sides Alliance sides to consider: RED, BLUE or ANY_SIDE
+   *  @param result Filled with indices of nearest tags, nearest first. Array size determines k.
+   *  @return Number of tags placed in result
+   */
+  public int findNearest(double robot_x, double robot_y, int types, int sides, int[] result)
+  {
+    int count = 0;
+    for (int i=0; i<tags.length; ++i)
+      if (matches(i, types, sides))
+      {
+        double dist2 = getDistance2(i, robot_x, robot_y);
+        // Insertion sort into result, dropping the farthest when full
+        int pos = count;
+        while (pos > 0  &&  getDistance2(result[pos-1], robot_x, robot_y) > dist2)
+        {
+          if (pos < result.length)
+            result[pos] = result[pos-1];
+          --pos;
+        }
+        if (pos < result.length)
+        {
+          result[pos] = i;
+          if (count < result.length)
+            ++count;
+        }
+      }
+    return count;
+  }
+
+  private double getDistance2(int i, double robot_x, double robot_y)
+  {
+    double dx = x[i] - robot_x, dy = y[i] - robot_y;
+    return dx*dx + dy*dy;
+  }
+}
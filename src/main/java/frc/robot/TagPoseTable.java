@@ -0,0 +1,117 @@
+// Copyright (c) FIRST Team 2393 and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+package frc.robot;
+
+import edu.wpi.first.apriltag.AprilTag;
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.math.geometry.Quaternion;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.math.geometry.Translation3d;
+
+/** Table for computing the robot position from tags seen by one camera
+ *
+ *  <p>Tag positions and the camera mount don't change,
+ *  so they are converted into rotation matrices once.
+ *  Computing a robot position is then one combined transform
+ *  without allocating memory.
+ *  Meant for use by one thread, since it re-uses internal buffers.
+ */
+class TagPoseTable
+{
+  /** Rotation matrix (row by row) and translation for each tag ID, null if unknown */
+  private final double[][] tag_rotation, tag_position;
+
+  /** Camera to robot, i.e. inverse of robot to camera */
+  private final double[] cam_robot_rotation = new double[9], cam_robot_position = new double[3];
+
+  /** Buffers for the camera to target rotation and the combined rotation */
+  private final double[] target_rotation = new double[9], combined = new double[6];
+
+  /** @param tags Field info
+   *  @param robot_to_cam Camera position on robot
+   */
+  TagPoseTable(AprilTagFieldLayout tags, Transform3d robot_to_cam)
+  {
+    int max_id = 0;
+    for (AprilTag tag : tags.getTags())
+      max_id = Math.max(max_id, tag.ID);
+    tag_rotation = new double[max_id+1][];
+    tag_position = new double[max_id+1][];
+    for (AprilTag tag : tags.getTags())
+    {
+      tag_rotation[tag.ID] = new double[9];
+      setRotation(tag.pose.getRotation().getQuaternion(), tag_rotation[tag.ID]);
+      tag_position[tag.ID] = setTranslation(tag.pose.getTranslation(), new double[3]);
+    }
+
+    Transform3d cam_to_robot = robot_to_cam.inverse();
+    setRotation(cam_to_robot.getRotation().getQuaternion(), cam_robot_rotation);
+    setTranslation(cam_to_robot.getTranslation(), cam_robot_position);
+  }
+
+  private static double[] setTranslation(Translation3d translation, double[] vector)
+  {
+    vector[0] = translation.getX();
+    vector[1] = translation.getY();
+    vector[2] = translation.getZ();
+    return vector;
+  }
+
+  /** @param q Quaternion
+   *  @param matrix Set to rotation matrix, row by row
+   */
+  private static void setRotation(Quaternion q, double[] matrix)
+  {
+    double w = q.getW(), x = q.getX(), y = q.getY(), z = q.getZ();
+    matrix[0] = 1 - 2*(y*y + z*z);
+    matrix[1] = 2*(x*y - w*z);
+    matrix[2] = 2*(x*z + w*y);
+    matrix[3] = 2*(x*y + w*z);
+    matrix[4] = 1 - 2*(x*x + z*z);
+    matrix[5] = 2*(y*z - w*x);
+    matrix[6] = 2*(x*z - w*y);
+    matrix[7] = 2*(y*z + w*x);
+    matrix[8] = 1 - 2*(x*x + y*y);
+  }
+
+  /** @param id Tag ID
+   *  @return Is that tag on the field?
+   */
+  boolean hasTag(int id)
+  {
+    return id >= 0  &&  id < tag_rotation.length  &&  tag_rotation[id] != null;
+  }
+
+  /** Same as {@link CameraHelper#computeRobotPose} but using the table
+   *  @param id Tag ID, must be valid, see {@link #hasTag}
+   *  @param camera_to_target Tag position as seen by camera
+   *  @param result Set to robot position x, y [m] and heading [rad]
+   */
+  void computeRobotPose(int id, Transform3d camera_to_target, double[] result)
+  {
+    // Robot = Tag * inverse(CameraToTarget) * CamToRobot.
+    // With tag rotation T, target rotation R and translation t,
+    // the rotation of the first two is A = T * R' and
+    // the robot position is tag position + A * (cam_robot_position - t).
+    // Only the X and Y rows of A are needed for a 2D result.
+    double[] T = tag_rotation[id], p = tag_position[id], R = target_rotation, A = combined;
+    setRotation(camera_to_target.getRotation().getQuaternion(), R);
+    for (int i=0; i<2; ++i)
+      for (int j=0; j<3; ++j)
+        A[i*3+j] = T[i*3]*R[j*3] + T[i*3+1]*R[j*3+1] + T[i*3+2]*R[j*3+2];
+
+    Translation3d t = camera_to_target.getTranslation();
+    double dx = cam_robot_position[0] - t.getX(),
+           dy = cam_robot_position[1] - t.getY(),
+           dz = cam_robot_position[2] - t.getZ();
+    result[0] = p[0] + A[0]*dx + A[1]*dy + A[2]*dz;
+    result[1] = p[1] + A[3]*dx + A[4]*dy + A[5]*dz;
+
+    // Heading from first column of A * cam_robot_rotation
+    double[] C = cam_robot_rotation;
+    double c00 = A[0]*C[0] + A[1]*C[3] + A[2]*C[6];
+    double c10 = A[3]*C[0] + A[4]*C[3] + A[5]*C[6];
+    result[2] = Math.atan2(c10, c00);
+  }
+}
@@ -4,11 +4,14 @@
 package frc.swervelib;
 
 import edu.wpi.first.math.controller.PIDController;
-import edu.wpi.first.networktables.NetworkTableEntry;
 import edu.wpi.first.wpilibj.RobotBase;
 import edu.wpi.first.wpilibj.TimedRobot;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.tools.LoopTiming;
+import frc.tools.Telemetry;
+import frc.tools.Telemetry.Priority;
+import frc.tools.TunableNumber;
 
 /** Forward/backwards part of swerve module
  *
@@ -19,20 +22,26 @@ import edu.wpi.first.wpilibj2.command.SubsystemBase;
 abstract public class DriverBase extends SubsystemBase
 {
   //Network table entries
-  private final NetworkTableEntry nt_position;
-  private final NetworkTableEntry nt_speed;
-  private final NetworkTableEntry nt_speed_sp;
-  private final NetworkTableEntry nt_ks;
-  private final NetworkTableEntry nt_kv;
-  private final NetworkTableEntry nt_P;
-  private final NetworkTableEntry nt_I;
-  private final NetworkTableEntry nt_D;
+  private final Telemetry.Topic nt_position;
+  private final Telemetry.Topic nt_speed;
+  private final Telemetry.Topic nt_speed_sp;
+  private final TunableNumber nt_ks;
+  private final TunableNumber nt_kv;
+  private final TunableNumber nt_P;
+  private final TunableNumber nt_I;
+  private final TunableNumber nt_D;
+  private final LoopTiming.Probe timing;
 
   // Information specific to each driver
   private double zero_position = 0.0;
   private double simulated_speed = 0.0;
   private double simulated_position = 0.0;
+  /** Last sampled position (without zero offset) and speed */
+  private double raw_position = 0.0, real_speed = 0.0;
   private PIDController pid = new PIDController(0, 0, 0);
+  /** Physics simulation, null to simply use the desired speed in simulation */
+  private SwervePhysics physics = null;
+  private final int index;
 
   /** Construct Driver
    *  @param index Driver index 0..3
@@ -44,26 +53,24 @@ abstract public class DriverBase extends SubsystemBase
    */
   public DriverBase(int index, double ks, double kv, double P, double I, double D)
   {
+    this.index = index;
     // Position and speed are specific to driver
-    nt_position = SmartDashboard.getEntry("Position" + index);
-    nt_speed = SmartDashboard.getEntry("Speed" + index);
-    nt_speed_sp = SmartDashboard.getEntry("SpeedSetp" + index);
+    nt_position = Telemetry.number("Position" + index, 0.001, Priority.NORMAL);
+    nt_speed = Telemetry.number("Speed" + index, 0.01, Priority.NORMAL);
+    nt_speed_sp = Telemetry.number("SpeedSetp" + index, 0.01, Priority.LOW);
+    timing = LoopTiming.probe("Driver" + index);
 
     // Feed-forward and PID settings are the same for all drivers
-    nt_ks = SmartDashboard.getEntry("Driver ks");
-    nt_kv = SmartDashboard.getEntry("Driver kv");
-    nt_P = SmartDashboard.getEntry("Driver P");
-    nt_I = SmartDashboard.getEntry("Driver I");
-    nt_D = SmartDashboard.getEntry("Driver D");
-    nt_ks.setDefaultDouble(ks);
-    nt_kv.setDefaultDouble(kv);
-    nt_P.setDefaultDouble(P);
-    nt_I.setDefaultDouble(I);
-    nt_D.setDefaultDouble(D);
+    nt_ks = new TunableNumber("Driver ks", ks);
+    nt_kv = new TunableNumber("Driver kv", kv);
+    nt_P = new TunableNumber("Driver P", P);
+    nt_I = new TunableNumber("Driver I", I);
+    nt_D = new TunableNumber("Driver D", D);
 
       // Defaults: 1, Double.POSITIVE_INFINITY
       pid.setIntegratorRange(-10, 10);
       pid.setIZone(0.1);    
+      pid.setPID(nt_P.get(), nt_I.get(), nt_D.get());
   }
 
   /** @param name Name under which to publish PID on dashboard */
@@ -72,11 +79,23 @@ abstract public class DriverBase extends SubsystemBase
     SmartDashboard.putData(name, pid);
   }
 
+  /** @param physics Physics simulation to use instead of assuming that desired speed is reached right away */
+  public void simulate(SwervePhysics physics)
+  {
+    this.physics = physics;
+  }
+
+  /** @return Use the desired speed as the simulated speed? */
+  private boolean isIdealSimulation()
+  {
+    return physics == null  &&  RobotBase.isSimulation();
+  }
+
   /** Reset position to zero */
   public void resetPosition()
   {
     pid.reset();
-    zero_position = getRawPosition();
+    zero_position = raw_position;
     simulated_position = 0.0;
   }
 
@@ -86,35 +105,65 @@ abstract public class DriverBase extends SubsystemBase
   /** @return Get speed in meters/sec (won't be called in simulation) */
   abstract protected double getRealSpeed();
 
+  /** Read sensors once for this period.
+   *  Position, speed and PID then use that reading until the next sample.
+   */
+  public void sample()
+  {
+    if (physics != null)
+    {
+      raw_position = physics.getPosition(index);
+      real_speed = physics.getSpeed(index);
+    }
+    else
+    {
+      raw_position = getRawPosition();
+      if (! RobotBase.isSimulation())
+        real_speed = getRealSpeed();
+    }
+  }
+
   /** @return Get speed in meters/sec */
   public double getSpeed()
   {
-    if (RobotBase.isSimulation())
+    if (isIdealSimulation())
       return simulated_speed;
-    return getRealSpeed();
+    return real_speed;
   }
 
   /** @param voltage Voltage to motor for driving the swerve module */
   abstract public void setVoltage(double voltage);
 
+  /** Stop motor */
+  public void stop()
+  {
+    setVoltage(0);
+    if (physics != null)
+      physics.setDriveVoltage(index, 0);
+  }
+
   /** @return Get position in meters from last 'reset' */
   public double getPosition()
   {
-    if (RobotBase.isSimulation())
+    if (isIdealSimulation())
       return simulated_position;
-    return getRawPosition() - zero_position;
+    return raw_position - zero_position;
   }
 
   /** @param desired_speed Speed in m/s */
   public void setSpeed(double desired_speed)
   {
-    nt_speed_sp.setDouble(desired_speed);
-    double feed_forward = nt_ks.getDouble(0.0) * Math.signum(desired_speed) + nt_kv.getDouble(0.0) * desired_speed;
-    pid.setPID(nt_P.getDouble(0.0), nt_I.getDouble(0.0), nt_D.getDouble(0.0));
+    nt_speed_sp.set(desired_speed);
+    double feed_forward = nt_ks.get() * Math.signum(desired_speed) + nt_kv.get() * desired_speed;
+    if (nt_P.hasChanged() | nt_I.hasChanged() | nt_D.hasChanged())
+      pid.setPID(nt_P.get(), nt_I.get(), nt_D.get());
     double prop_correction =  pid.calculate(getSpeed(), desired_speed);
-    setVoltage(feed_forward + prop_correction);
+    double voltage = feed_forward + prop_correction;
+    setVoltage(voltage);
 
     // Update simulation, assume being called each period
+    if (physics != null)
+      physics.setDriveVoltage(index, voltage);
     simulated_speed = desired_speed;
     simulated_position += desired_speed * TimedRobot.kDefaultPeriod;
   }
@@ -122,7 +171,9 @@ abstract public class DriverBase extends SubsystemBase
   @Override
   public void periodic()
   {
-    nt_position.setNumber(getPosition());
-    nt_speed.setNumber(getSpeed());
+    long start = timing.start();
+    nt_position.set(getPosition());
+    nt_speed.set(getSpeed());
+    timing.stop(start);
   }
 }
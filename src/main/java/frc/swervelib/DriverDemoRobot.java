@@ -31,6 +31,7 @@ public class DriverDemoRobot extends CommandRobotBase
   @Override
   public void teleopPeriodic()
   {
+    driver.sample();
     if (joystick.getXButton())
       driver.resetPosition();
     if (joystick.getAButton())
@@ -54,6 +55,7 @@ public class DriverDemoRobot extends CommandRobotBase
   @Override
   public void autonomousPeriodic()
   {
+    driver.sample();
     // Toggle speed between two setpoints
     double setpoint = ((System.currentTimeMillis() / (int)(SmartDashboard.getNumber("Period", 5.0)*1000)) % 2 == 1)
                     ? SmartDashboard.getNumber("Setpoint1", 0.5)
@@ -0,0 +1,115 @@
+// Copyright (c) FIRST Team 2393 and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+package frc.swervelib;
+
+import edu.wpi.first.wpilibj.Timer;
+
+/** Sensor readings of a drivetrain, sampled once per period
+ *
+ *  <p>Instead of reading the encoders again and again
+ *  for odometry, swerve, dashboard, ...,
+ *  the drivetrain samples all of them once at the start of
+ *  a period, and all code running in that period uses
+ *  the same, consistent readings.
+ */
+public class DrivetrainSnapshot
+{
+  private final double[] angles, distances, speeds;
+  private double raw_heading = 0.0;
+  private double timestamp = 0.0;
+
+  /** @param count Number of modules */
+  public DrivetrainSnapshot(int count)
+  {
+    angles = new double[count];
+    distances = new double[count];
+    speeds = new double[count];
+  }
+
+  /** Read sensors of all modules and gyro
+   *  @param modules Modules to sample
+   *  @param raw_heading Gyro heading in degrees, not corrected for zero heading
+   */
+  public void sample(SwerveModule[] modules, double raw_heading)
+  {
+    timestamp = Timer.getFPGATimestamp();
+    for (int i=0; i<modules.length; ++i)
+      modules[i].sample();
+    this.raw_heading = raw_heading;
+    update(modules);
+  }
+
+  /** Update module readings from the last module sample,
+   *  for example after resetting the module positions
+   *  @param modules Modules that have been sampled
+   */
+  public void update(SwerveModule[] modules)
+  {
+    for (int i=0; i<modules.length; ++i)
+    {
+      angles[i] = modules[i].getDegrees();
+      distances[i] = modules[i].getDistance();
+      speeds[i] = modules[i].getSpeed();
+    }
+  }
+
+  /** Set gyro reading, for example when replaying a log
+   *  @param timestamp Time of the sample in seconds
+   *  @param raw_heading Gyro heading in degrees, not corrected for zero heading
+   */
+  public void setGyro(double timestamp, double raw_heading)
+  {
+    this.timestamp = timestamp;
+    this.raw_heading = raw_heading;
+  }
+
+  /** Set module reading, for example when replaying a log
+   *  @param i Module index
+   *  @param angle Module angle in degrees
+   *  @param distance Module distance in meters
+   *  @param speed Module speed in meters/sec
+   */
+  public void setModule(int i, double angle, double distance, double speed)
+  {
+    angles[i] = angle;
+    distances[i] = distance;
+    speeds[i] = speed;
+  }
+
+  /** @return Time of the sample in seconds, based on Timer.getFPGATimestamp() */
+  public double getTimestamp()
+  {
+    return timestamp;
+  }
+
+  /** @return Gyro heading in degrees, not corrected for zero heading */
+  public double getRawHeading()
+  {
+    return raw_heading;
+  }
+
+  /** @param i Module index
+   *  @return Module angle in degrees
+   */
+  public double getAngle(int i)
+  {
+    return angles[i];
+  }
+
+  /** @param i Module index
+   *  @return Module distance in meters from last 'reset'
+   */
+  public double getDistance(int i)
+  {
+    return distances[i];
+  }
+
+  /** @param i Module index
+   *  @return Module speed in meters/sec
+   */
+  public double getSpeed(int i)
+  {
+    return speeds[i];
+  }
+}
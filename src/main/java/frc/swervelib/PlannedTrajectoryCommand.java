@@ -0,0 +1,105 @@
+// Copyright (c) FIRST Team 2393 and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+package frc.swervelib;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.trajectory.Trajectory;
+import edu.wpi.first.wpilibj2.command.Command;
+import frc.tools.TrajectoryPlanner;
+
+/** Command that plans a trajectory from the current position to a goal and follows it
+ *
+ *  <p>Trajectory is planned in the background while the drivetrain
+ *  is stopped, and followed as soon as it's ready.
+ *  Trajectory is in absolute field coordinates,
+ *  so this selects the absolute trajectory origin.
+ *
+ *  <p>When a precomputed trajectory for the move is available,
+ *  it is followed right away without planning.
+ */
+public class PlannedTrajectoryCommand extends Command
+{
+  /** Max. speed [m/s] */
+  public static double MAX_SPEED = 2.0;
+
+  /** Max. acceleration [m/s^2] */
+  public static double ACCEL = 2.0;
+
+  private final SwerveDrivetrain drivetrain;
+  private final Supplier<Pose2d> goal_supplier;
+  private final BiFunction<Pose2d, Pose2d, Trajectory> lookup;
+  private Pose2d goal;
+  private CompletableFuture<Trajectory> planned;
+  private Command follower;
+
+  /** @param drivetrain Drivetrain to use
+   *  @param goal_supplier Called when command starts to get goal position
+   */
+  public PlannedTrajectoryCommand(SwerveDrivetrain drivetrain, Supplier<Pose2d> goal_supplier)
+  {
+    this(drivetrain, goal_supplier, (start, goal) -> null);
+  }
+
+  /** @param drivetrain Drivetrain to use
+   *  @param goal_supplier Called when command starts to get goal position
+   *  @param lookup Called with current position and goal to get precomputed trajectory, may return <code>null</code> to plan one
+   */
+  public PlannedTrajectoryCommand(SwerveDrivetrain drivetrain, Supplier<Pose2d> goal_supplier,
+                                  BiFunction<Pose2d, Pose2d, Trajectory> lookup)
+  {
+    this.drivetrain = drivetrain;
+    this.goal_supplier = goal_supplier;
+    this.lookup = lookup;
+    addRequirements(drivetrain);
+  }
+
+  @Override
+  public void initialize()
+  {
+    drivetrain.setTrajectoryOrigin(new Pose2d());
+    goal = goal_supplier.get();
+    Trajectory known = lookup.apply(drivetrain.getPose(), goal);
+    planned = known != null ? CompletableFuture.completedFuture(known)
+                            : TrajectoryPlanner.plan(drivetrain.getPose(), goal, MAX_SPEED, ACCEL);
+    follower = null;
+  }
+
+  @Override
+  public void execute()
+  {
+    if (follower == null)
+    {
+      Trajectory trajectory = planned.getNow(null);
+      if (trajectory == null)
+      { // Still planning
+        drivetrain.stop();
+        return;
+      }
+      // Drivetrain is already required by this command
+      follower = drivetrain.followTrajectory(trajectory, goal.getRotation().getDegrees(), false);
+      follower.initialize();
+    }
+    follower.execute();
+  }
+
+  @Override
+  public boolean isFinished()
+  {
+    return follower != null  &&  follower.isFinished();
+  }
+
+  @Override
+  public void end(boolean interrupted)
+  {
+    if (follower != null)
+      follower.end(interrupted);
+    else
+      planned.cancel(false);
+    drivetrain.stop();
+  }
+}
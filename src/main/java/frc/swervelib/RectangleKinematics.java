@@ -0,0 +1,152 @@
+// Copyright (c) FIRST Team 2393 and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+package frc.swervelib;
+
+/** Kinematics for 4 swerve modules on the corners of a rectangle
+ *
+ *  <p>Performs the same computations as the WPILib SwerveDriveKinematics,
+ *  SwerveModuleState.optimize(), cosineScale() and desaturateWheelSpeeds(),
+ *  but using preallocated arrays.
+ *  Calling it in every period thus doesn't create any garbage.
+ *
+ *  <p>Not thread-safe, meant to be used by the drivetrain
+ *  from the robot loop.
+ */
+public class RectangleKinematics
+{
+  /** Number of modules */
+  public static final int N = 4;
+
+  /** Front left, front right, back right, back left module locations relative to center */
+  private final double[] module_x, module_y;
+
+  /** Sum of squared module distances from center */
+  private final double radius_squared;
+
+  /** Module angles [degrees] */
+  private final double[] angle = new double[N];
+
+  /** Module speeds [m/s] */
+  private final double[] speed = new double[N];
+
+  /** @param width Width of the rectangle where modules are on corners in meters
+   *  @param length Length of that rectangle in meters
+   */
+  public RectangleKinematics(double width, double length)
+  {
+    module_x = new double[] { length / 2,  length / 2, -length / 2, -length / 2 };
+    module_y = new double[] { width / 2,  -width / 2,  -width / 2,   width / 2 };
+    double sum = 0.0;
+    for (int i=0; i<N; ++i)
+      sum += module_x[i]*module_x[i] + module_y[i]*module_y[i];
+    radius_squared = sum;
+  }
+
+  /** Compute module states for desired chassis movement
+   *
+   *  <p>When not moving at all, module angles remain
+   *  as they were, same as SwerveDriveKinematics
+   *
+   *  @param vx Speed in 'X' (forward/back) direction [m/s]
+   *  @param vy Speed in 'Y' (left/right) direction [m/s]
+   *  @param vr Speed for rotation [rad/s]
+   *  @param center_x Center of rotation, X
+   *  @param center_y Center of rotation, Y
+   */
+  public void compute(double vx, double vy, double vr, double center_x, double center_y)
+  {
+    if (vx == 0.0  &&  vy == 0.0  &&  vr == 0.0)
+    {
+      for (int i=0; i<N; ++i)
+        speed[i] = 0.0;
+      return;
+    }
+
+    for (int i=0; i<N; ++i)
+    {
+      double x = vx - vr * (module_y[i] - center_y);
+      double y = vy + vr * (module_x[i] - center_x);
+      speed[i] = Math.hypot(x, y);
+      // Rotation2d(x, y) uses 0 degrees for a vector that's practically zero
+      angle[i] = speed[i] > 1e-6 ? Math.toDegrees(Math.atan2(y, x)) : 0.0;
+    }
+  }
+
+  /** @param i Module index
+   *  @param module_angle Module angle [degrees]
+   *  @param module_speed Module speed [m/s]
+   */
+  public void setState(int i, double module_angle, double module_speed)
+  {
+    angle[i] = module_angle;
+    speed[i] = module_speed;
+  }
+
+  /** Optimize module rotation: Rather than turning more than 90 degrees,
+   *  turn the other way and reverse the speed
+   *  @param i Module index
+   *  @param current_angle Current angle of that module [degrees]
+   */
+  public void optimize(int i, double current_angle)
+  {
+    if (Math.abs(Math.IEEEremainder(angle[i] - current_angle, 360.0)) > 90.0)
+    {
+      speed[i] = -speed[i];
+      angle[i] = Math.IEEEremainder(angle[i] + 180.0, 360.0);
+    }
+  }
+
+  /** Cosine compensation: Reduce speed when module is off the desired angle
+   *  @param i Module index
+   *  @param current_angle Current angle of that module [degrees]
+   */
+  public void cosineScale(int i, double current_angle)
+  {
+    speed[i] *= Math.cos(Math.toRadians(angle[i] - current_angle));
+  }
+
+  /** Scale all module speeds such that none exceeds a maximum
+   *  @param max_speed Maximum module speed [m/s]
+   */
+  public void desaturate(double max_speed)
+  {
+    double max = 0.0;
+    for (int i=0; i<N; ++i)
+      max = Math.max(max, Math.abs(speed[i]));
+    if (max > max_speed)
+      for (int i=0; i<N; ++i)
+        speed[i] = speed[i] / max * max_speed;
+  }
+
+  /** @param i Module index
+   *  @return Module angle [degrees]
+   */
+  public double getAngle(int i)
+  {
+    return angle[i];
+  }
+
+  /** @param i Module index
+   *  @return Module speed [m/s]
+   */
+  public double getSpeed(int i)
+  {
+    return speed[i];
+  }
+
+  /** @return Rotational speed of chassis for current module states [rad/s] */
+  public double getOmega()
+  {
+    // Since modules are symmetric around the center,
+    // the least-squares solution for the rotation decouples from vx, vy
+    double sum = 0.0;
+    for (int i=0; i<N; ++i)
+    {
+      double a = Math.toRadians(angle[i]);
+      sum += module_x[i] * speed[i] * Math.sin(a)
+           - module_y[i] * speed[i] * Math.cos(a);
+    }
+    return sum / radius_squared;
+  }
+}
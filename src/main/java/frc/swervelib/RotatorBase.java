@@ -6,24 +6,33 @@ package frc.swervelib;
 import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.controller.PIDController;
 import edu.wpi.first.math.geometry.Rotation2d;
-import edu.wpi.first.networktables.NetworkTableEntry;
 import edu.wpi.first.wpilibj.RobotBase;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.tools.LoopTiming;
+import frc.tools.Telemetry;
+import frc.tools.Telemetry.Priority;
+import frc.tools.TunableNumber;
 
 /** Rotational part of a swerve module */
 abstract public class RotatorBase extends SubsystemBase
 {
-  private final NetworkTableEntry nt_offset;
-  private final NetworkTableEntry nt_ks;
-  private final NetworkTableEntry nt_P;
-  private final NetworkTableEntry nt_I;
-  private final NetworkTableEntry nt_D;
-  private final NetworkTableEntry nt_max;
-  private final NetworkTableEntry nt_angle;
-  private final NetworkTableEntry nt_angle_sp;
+  private final TunableNumber nt_offset;
+  private final TunableNumber nt_ks;
+  private final TunableNumber nt_P;
+  private final TunableNumber nt_I;
+  private final TunableNumber nt_D;
+  private final TunableNumber nt_max;
+  private final Telemetry.Topic nt_angle;
+  private final Telemetry.Topic nt_angle_sp;
+  private final LoopTiming.Probe timing;
   protected final PIDController pid = new PIDController(0,0,0);
   private double simulated_angle = 0.0;
+  /** Last sampled angle without offset correction */
+  private double raw_degrees = 0.0;
+  /** Physics simulation, null to simply use the desired angle in simulation */
+  private SwervePhysics physics = null;
+  private final int index;
 
   /** Construct Rotator
    *  @param index Rotator index 0..3
@@ -37,26 +46,22 @@ abstract public class RotatorBase extends SubsystemBase
   public RotatorBase(int index, double offset,
                      double ks, double kp, double ki, double kd, double max)
   {
-    nt_offset = SmartDashboard.getEntry("Offset" + index);
-    nt_angle = SmartDashboard.getEntry("Angle" + index);
-    nt_angle_sp = SmartDashboard.getEntry("AngleSetpt" + index);
-    nt_ks = SmartDashboard.getEntry("Rotator ks");
-    nt_P = SmartDashboard.getEntry("Rotator P");
-    nt_I = SmartDashboard.getEntry("Rotator I");
-    nt_D = SmartDashboard.getEntry("Rotator D");
-    nt_max = SmartDashboard.getEntry("Rotator Max");
+    this.index = index;
+    timing = LoopTiming.probe("Rotator" + index);
+    nt_offset = new TunableNumber("Offset" + index, offset);
+    nt_angle = Telemetry.number("Angle" + index, 0.1, Priority.NORMAL);
+    nt_angle_sp = Telemetry.number("AngleSetpt" + index, 0.1, Priority.LOW);
+    nt_ks = new TunableNumber("Rotator ks", ks);
+    nt_P = new TunableNumber("Rotator P", kp);
+    nt_I = new TunableNumber("Rotator I", ki);
+    nt_D = new TunableNumber("Rotator D", kd);
+    nt_max = new TunableNumber("Rotator Max", max);
 
     pid.enableContinuousInput(-180, 180);
     // Defaults: 1, inf
     pid.setIntegratorRange(-1, 1);
     pid.setIZone(5.0);
-
-    nt_offset.setDefaultDouble(offset);
-    nt_ks.setDefaultDouble(ks);
-    nt_P.setDefaultDouble(kp);
-    nt_I.setDefaultDouble(ki);
-    nt_D.setDefaultDouble(kd);
-    nt_max.setDefaultDouble(max);
+    pid.setPID(nt_P.get(), nt_I.get(), nt_D.get());
   }
 
   /** @param name Name under which to publish PID on dashboard */
@@ -65,38 +70,77 @@ abstract public class RotatorBase extends SubsystemBase
     SmartDashboard.putData(name, pid);
   }
 
+  /** @param physics Physics simulation to use instead of assuming that desired angle is reached right away */
+  public void simulate(SwervePhysics physics)
+  {
+    this.physics = physics;
+  }
+
+  /** @return Use the desired angle as the simulated angle? */
+  private boolean isIdealSimulation()
+  {
+    return physics == null  &&  RobotBase.isSimulation();
+  }
+
   /** @return Angle without any offset correction [degrees] */
   abstract public double getRawDegrees();
 
   /** @param voltage Voltage to motor for rotating the swerve module */
   abstract public void setVoltage(double voltage);
 
+  /** Stop motor */
+  public void stop()
+  {
+    setVoltage(0);
+    if (physics != null)
+      physics.setSteerVoltage(index, 0);
+  }
+
+  /** Read sensor once for this period.
+   *  Angle and PID then use that reading until the next sample.
+   */
+  public void sample()
+  {
+    raw_degrees = physics != null
+                ? physics.getDegrees(index) + nt_offset.get()
+                : getRawDegrees();
+  }
+
+  /** @return Angle in degrees, -180..180 */
+  public double getDegrees()
+  {
+    if (isIdealSimulation())
+      return simulated_angle;
+    return Math.IEEEremainder(raw_degrees - nt_offset.get(), 360.0);
+  }
+
   /** @return Angle */
   public Rotation2d getAngle()
   {
-    if (RobotBase.isSimulation())
-      return Rotation2d.fromDegrees(simulated_angle);
-    return Rotation2d.fromDegrees(Math.IEEEremainder(getRawDegrees() - nt_offset.getDouble(0.0), 360.0));
+    return Rotation2d.fromDegrees(getDegrees());
   }
 
   /** @param desired Desired angle of serve module in degrees */
   public void setAngle(double desired)
   {
-    nt_angle_sp.setDouble(desired);
+    nt_angle_sp.set(desired);
     // PID control, with error normalized to -180..180
-    double angle = getRawDegrees() - nt_offset.getDouble(0.0);
+    double angle = raw_degrees - nt_offset.get();
     double error = Math.IEEEremainder(desired - angle, 360.0);
    
     // Start with minimal static voltage to overcome friction
-    double output = nt_ks.getDouble(0.0) * Math.signum(error);
-    // Add PID correction
-    pid.setPID(nt_P.getDouble(0.0), nt_I.getDouble(0.0), nt_D.getDouble(0.0));
+    double output = nt_ks.get() * Math.signum(error);
+    // Add PID correction, updating gains when they were changed on dashboard
+    if (nt_P.hasChanged() | nt_I.hasChanged() | nt_D.hasChanged())
+      pid.setPID(nt_P.get(), nt_I.get(), nt_D.get());
     output += pid.calculate(angle, desired);
 
     // Clamp to +- max
-    double max = nt_max.getDouble(1.0);
+    double max = nt_max.get();
     output = MathUtil.clamp(output, -max, max);
     setVoltage(output);
+    if (physics != null)
+      physics.setSteerVoltage(index, output);
 
     simulated_angle = desired;
   }
@@ -104,6 +148,8 @@ abstract public class RotatorBase extends SubsystemBase
   @Override
   public void periodic()
   {
-    nt_angle.setDouble(getAngle().getDegrees());
+    long start = timing.start();
+    nt_angle.set(getDegrees());
+    timing.stop(start);
   }
 }
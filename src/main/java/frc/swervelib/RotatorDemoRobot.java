@@ -31,6 +31,7 @@ public class RotatorDemoRobot extends CommandRobotBase
   @Override
   public void teleopPeriodic()
   {
+    rotator.sample();
     if (joystick.getAButton())
       rotator.setAngle(Math.toDegrees(Math.atan2(-joystick.getLeftX(),
                                                  -joystick.getLeftY())));
@@ -45,6 +46,7 @@ public class RotatorDemoRobot extends CommandRobotBase
   @Override
   public void autonomousPeriodic()
   {
+    rotator.sample();
     double setpoint = ((System.currentTimeMillis() / (int)(SmartDashboard.getNumber("Period", 5.0)*1000)) % 2 == 1)
                     ? SmartDashboard.getNumber("Setpoint1", 0.0)
                     : SmartDashboard.getNumber("Setpoint2", 90.0);
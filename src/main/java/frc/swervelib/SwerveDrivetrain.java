@@ -3,11 +3,11 @@
 // the WPILib BSD license file in the root directory of this project.
 package frc.swervelib;
 
-import java.util.List;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.Arrays;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 
+import edu.wpi.first.math.Matrix;
 import edu.wpi.first.math.VecBuilder;
 import edu.wpi.first.math.controller.PIDController;
 import edu.wpi.first.math.controller.ProfiledPIDController;
@@ -15,22 +15,28 @@ import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Translation2d;
-import edu.wpi.first.math.kinematics.ChassisSpeeds;
 import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
 import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
 import edu.wpi.first.math.trajectory.Trajectory;
 import edu.wpi.first.math.trajectory.TrapezoidProfile;
 import edu.wpi.first.networktables.NetworkTableEntry;
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.RobotBase;
 import edu.wpi.first.wpilibj.TimedRobot;
+import edu.wpi.first.wpilibj.simulation.RoboRioSim;
 import edu.wpi.first.wpilibj.smartdashboard.Field2d;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.InstantCommand;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import edu.wpi.first.wpilibj2.command.SwerveControllerCommand;
+import frc.tools.LoopTiming;
+import frc.tools.Telemetry;
+import frc.tools.Telemetry.Priority;
+import frc.tools.TunableNumber;
 
 /** Swerve module drive train */
 abstract public class SwerveDrivetrain extends SubsystemBase
@@ -48,9 +54,9 @@ abstract public class SwerveDrivetrain extends SubsystemBase
   public static int MAX_ROTATION_DEG_PER_SEC = 90;
 
   /** Position on field */
-  private final NetworkTableEntry nt_x = SmartDashboard.getEntry("X");
-  private final NetworkTableEntry nt_y = SmartDashboard.getEntry("Y");
-  private final NetworkTableEntry nt_heading = SmartDashboard.getEntry("Heading");
+  private final Telemetry.Topic nt_x = Telemetry.number("X", 0.001, Priority.HIGH);
+  private final Telemetry.Topic nt_y = Telemetry.number("Y", 0.001, Priority.HIGH);
+  private final Telemetry.Topic nt_heading = Telemetry.number("Heading", 0.1, Priority.HIGH);
   private final NetworkTableEntry nt_set_pose = SmartDashboard.getEntry("SetPose");
   private final NetworkTableEntry nt_set_x = SmartDashboard.getEntry("SetX");
   private final NetworkTableEntry nt_set_y = SmartDashboard.getEntry("SetY");
@@ -58,9 +64,11 @@ abstract public class SwerveDrivetrain extends SubsystemBase
 
   private final Field2d field = new Field2d();
 
+  private final LoopTiming.Probe timing = LoopTiming.probe("Drivetrain");
+
   /** Trajectory follower P gains */
-  private final NetworkTableEntry nt_xy_p = SmartDashboard.getEntry("Traj XY P");
-  private final NetworkTableEntry nt_angle_p = SmartDashboard.getEntry("Traj Angle P");
+  private final TunableNumber nt_xy_p = new TunableNumber("Traj XY P", 1.0);
+  private final TunableNumber nt_angle_p = new TunableNumber("Traj Angle P", 5.0);
 
   /** Rectangle where modules are on the corners */
   private final double width, length;
@@ -68,19 +76,59 @@ abstract public class SwerveDrivetrain extends SubsystemBase
   /** Front left, front right, back right, back left module */
   private final SwerveModule[] modules;
 
+  /** Sensor readings for the current period */
+  private final DrivetrainSnapshot snapshot;
+
+  /** Module positions for odometry, updated from snapshot */
+  private final SwerveModulePosition[] positions;
+
+  /** Module angles [deg] of the 'positions', to re-use their immutable Rotation2d while unchanged */
+  private final double[] position_angles;
+
   /** Zero offset for gyro in degrees */
   private double zero_heading = 7.45;
 
   /** Simulated gyro angle in degrees */
   private double simulated_heading = 0.0;
 
+  /** Optional physics simulation, otherwise simulation assumes that modules reach desired state right away */
+  private SwervePhysics physics = null;
+
+  /** Time step of the physics simulation [s] */
+  private static final double SIMULATION_STEP = 0.001;
+
+  /** Actual position in physics simulation, which odometry only estimates,
+   *  and offset from simulated gyro heading to actual heading [deg]
+   */
+  private double true_x = 0.0, true_y = 0.0, true_heading_offset = 0.0;
+
   /** Kinematics that translate chassis speed to module settings and vice versa */
   private final SwerveDriveKinematics kinematics;
 
+  /** Preallocated kinematics used by {@link #swerve} for the module settings */
+  private final RectangleKinematics module_states;
+
   /** Position tracker */
   // private final SwerveDriveOdometry odometry;
   private final SwerveDrivePoseEstimator odometry;
 
+  /** Standard deviations of odometry (x [m], y [m], heading [rad]),
+   *  may be changed before creating the drivetrain, for example in a replay
+   */
+  public static double STATE_STD_XY = 0.05, STATE_STD_HEADING = 0.05;
+
+  /** Default standard deviations of camera measurements (x [m], y [m], heading [rad]),
+   *  may be changed before creating the drivetrain
+   */
+  public static double VISION_STD_XY = 0.95, VISION_STD_HEADING = 0.95;
+  private final Matrix<N3, N1> vision_std_devs = VecBuilder.fill(VISION_STD_XY, VISION_STD_XY, VISION_STD_HEADING);
+  private Pose2d last_vision = null;
+  private double last_vision_time = 0.0, last_vision_std_xy = VISION_STD_XY, last_vision_std_heading = VISION_STD_HEADING;
+  private int vision_updates = 0;
+
+  /** How well the last trajectory was followed, about 10 seconds */
+  private final TrackingRecorder tracking;
+
   /** Origin used by {@link #followTrajectory} */
   private Pose2d trajectory_origin = new Pose2d();
 
@@ -93,17 +141,28 @@ abstract public class SwerveDrivetrain extends SubsystemBase
     this.width = width;
     this.length = length;
     this.modules = modules;
+    snapshot = new DrivetrainSnapshot(modules.length);
+    positions = new SwerveModulePosition[modules.length];
+    for (int i=0; i<modules.length; ++i)
+      positions[i] = new SwerveModulePosition();
+    position_angles = new double[modules.length];
+    Arrays.fill(position_angles, Double.NaN);
+    // Gyro of derived class isn't available, yet, so only sample modules
+    for (int i=0; i<modules.length; ++i)
+      modules[i].sample();
+    snapshot.update(modules);
     
     kinematics = new SwerveDriveKinematics(new Translation2d( length / 2,  width / 2),
                                            new Translation2d( length / 2, -width / 2),
                                            new Translation2d(-length / 2, -width / 2),
                                            new Translation2d(-length / 2,  width / 2) );
+    module_states = new RectangleKinematics(width, length);
 
     // odometry = new SwerveDriveOdometry(kinematics, new Rotation2d(), getPositions());
     // Default errors are 0.1 for state  vs. 0.9 for vision
     odometry = new SwerveDrivePoseEstimator(kinematics, new Rotation2d(), getPositions(), new Pose2d(),
-                                            VecBuilder.fill(0.05, 0.05, 0.05),
-                                            VecBuilder.fill(0.95, 0.95, 0.95));
+                                            VecBuilder.fill(STATE_STD_XY, STATE_STD_XY, STATE_STD_HEADING),
+                                            VecBuilder.fill(VISION_STD_XY, VISION_STD_XY, VISION_STD_HEADING));
 
     // Publish command to reset position
     SmartDashboard.putData(new ResetPositionCommand(this));
@@ -111,9 +170,9 @@ abstract public class SwerveDrivetrain extends SubsystemBase
     // Publish field
     SmartDashboard.putData(field);
 
-    // Gain settings
-    nt_xy_p.setDefaultDouble(1.0);
-    nt_angle_p.setDefaultDouble(5.0);
+    // Allow printing how well the last trajectory was followed
+    tracking = new TrackingRecorder(modules.length, 500);
+    SmartDashboard.putData("Print Tracking", new InstantCommand(tracking::print).ignoringDisable(true));
 
     // Entries for setting the pose (while disabled)
     nt_set_pose.setDefaultBoolean(false);
@@ -137,10 +196,50 @@ abstract public class SwerveDrivetrain extends SubsystemBase
     return length;
   }
 
+  /** @return Number of swerve modules */
+  public int getModuleCount()
+  {
+    return modules.length;
+  }
+
+  /** @param index Module index
+   *  @return Swerve module
+   */
+  public SwerveModule getModule(int index)
+  {
+    return modules[index];
+  }
+
+  /** Hook for refreshing all sensors in one batch before {@link #sample()} reads them */
+  protected void refreshSensors()
+  {
+    // Derived class may for example refresh all its status signals at once
+  }
+
+  /** Read all sensors once for this period
+   *
+   *  <p>Called at the start of {@link #periodic()}.
+   *  Commands that run afterwards in the same period
+   *  use these readings for heading, positions, swerve, ...
+   */
+  public void sample()
+  {
+    refreshSensors();
+    snapshot.sample(modules, getRawHeading());
+  }
+
+  /** @return Sensor readings of the current period */
+  public DrivetrainSnapshot getSnapshot()
+  {
+    return snapshot;
+  }
+
   /** Reset gyro heading */
   public void resetHeading(double degrees)
   {
-    zero_heading = getRawHeading() + degrees;
+    zero_heading = snapshot.getRawHeading() + degrees;
+    // Resetting the gyro doesn't turn the robot in the physics simulation
+    true_heading_offset += simulated_heading - degrees;
     simulated_heading = degrees;
   }
 
@@ -150,6 +249,7 @@ abstract public class SwerveDrivetrain extends SubsystemBase
     resetHeading(0);
     for (int i=0; i<modules.length; ++i)
       modules[i].resetPosition();
+    snapshot.update(modules);
     odometry.resetPosition(getHeading(), getPositions(), new Pose2d());
     trajectory_origin = new Pose2d();
   }
@@ -178,18 +278,33 @@ abstract public class SwerveDrivetrain extends SubsystemBase
   {
     if (RobotBase.isSimulation())
       return Rotation2d.fromDegrees(simulated_heading);
-    return Rotation2d.fromDegrees(getRawHeading() - zero_heading);
+    return Rotation2d.fromDegrees(snapshot.getRawHeading() - zero_heading);
   }
 
   /** @return Positions of the swerve modules */
   private SwerveModulePosition[] getPositions()
   {
-    final SwerveModulePosition[] positions = new SwerveModulePosition[modules.length];
+    // Odometry copies the positions, so we can re-use the array
     for (int i=0; i<modules.length; ++i)
-      positions[i] = modules[i].getPosition();
+    {
+      positions[i].distanceMeters = snapshot.getDistance(i);
+      // Rotation2d is immutable, only create a new one when the module turned
+      double angle = snapshot.getAngle(i);
+      if (angle != position_angles[i])
+      {
+        position_angles[i] = angle;
+        positions[i].angle = Rotation2d.fromDegrees(angle);
+      }
+    }
     return positions;
   }
 
+  /** @return Field that shows the drivetrain position, for adding more objects */
+  public Field2d getField()
+  {
+    return field;
+  }
+
   /** @return Position of drivetrain on field (from odometry) */
   public Pose2d getPose()
   {
@@ -203,6 +318,62 @@ abstract public class SwerveDrivetrain extends SubsystemBase
   public void updateLocationFromCamera(Pose2d robot_position, double timestamp)
   {
     odometry.addVisionMeasurement(robot_position, timestamp);
+    last_vision = robot_position;
+    last_vision_time = timestamp;
+    last_vision_std_xy = VISION_STD_XY;
+    last_vision_std_heading = VISION_STD_HEADING;
+    ++vision_updates;
+  }
+
+  /** @param robot_position Robot's position on field as estimated by camera
+   *  @param timestamp Based on Timer.getFPGATimestamp()
+   *  @param std_x Standard deviation of camera's X position [m]
+   *  @param std_y .. Y position [m]
+   *  @param std_heading .. heading [rad]
+   */
+  public void updateLocationFromCamera(Pose2d robot_position, double timestamp,
+                                       double std_x, double std_y, double std_heading)
+  {
+    // Estimator doesn't keep the matrix, so re-use it
+    vision_std_devs.set(0, 0, std_x);
+    vision_std_devs.set(1, 0, std_y);
+    vision_std_devs.set(2, 0, std_heading);
+    odometry.addVisionMeasurement(robot_position, timestamp, vision_std_devs);
+    last_vision = robot_position;
+    last_vision_time = timestamp;
+    last_vision_std_xy = Math.max(std_x, std_y);
+    last_vision_std_heading = std_heading;
+    ++vision_updates;
+  }
+
+  /** @return Number of camera updates so far */
+  public int getVisionUpdates()
+  {
+    return vision_updates;
+  }
+
+  /** @return Last position from camera, null if none */
+  public Pose2d getLastVisionPose()
+  {
+    return last_vision;
+  }
+
+  /** @return Timestamp of last camera update */
+  public double getLastVisionTime()
+  {
+    return last_vision_time;
+  }
+
+  /** @return Standard deviation of last camera update's position [m] */
+  public double getLastVisionStdXY()
+  {
+    return last_vision_std_xy;
+  }
+
+  /** @return Standard deviation of last camera update's heading [rad] */
+  public double getLastVisionStdHeading()
+  {
+    return last_vision_std_heading;
   }
 
   /** Lock modules in "diamond" pattern to prevent rolling */
@@ -250,34 +421,119 @@ abstract public class SwerveDrivetrain extends SubsystemBase
   public void swerve(double vx, double vy, double vr, Translation2d center)
   {
     // Translate desired chassis movement to settings of the 4 swerve modules
-    SwerveModuleState[] states = kinematics.toSwerveModuleStates(new ChassisSpeeds(vx, vy, vr), center);
+    module_states.compute(vx, vy, vr, center.getX(), center.getY());
+    driveModuleStates();
+  }
 
+  /** Optimize, scale and desaturate the module_states, then drive modules */
+  private void driveModuleStates()
+  {
     for (int i=0; i<modules.length; ++i)
     {
-      Rotation2d current_angle = modules[i].getAngle();
+      double current_angle = snapshot.getAngle(i);
       // Optimize module rotation
-      states[i].optimize(current_angle);
+      module_states.optimize(i, current_angle);
 
       // Cosine compensation: Reduce speed when off desired heading
-      states[i].cosineScale(current_angle);
+      module_states.cosineScale(i, current_angle);
     }
 
-    SwerveDriveKinematics.desaturateWheelSpeeds(states, MAX_METERS_PER_SEC);
+    module_states.desaturate(MAX_METERS_PER_SEC);
 
     for (int i=0; i<modules.length; ++i)
-      modules[i].drive(states[i].angle.getDegrees(),
-                       states[i].speedMetersPerSecond);
+      modules[i].drive(module_states.getAngle(i),
+                       module_states.getSpeed(i));
     
-    if (RobotBase.isSimulation())
+    if (RobotBase.isSimulation()  &&  physics == null)
     {
-      double adjusted_vr = Math.toDegrees(kinematics.toChassisSpeeds(states).omegaRadiansPerSecond);
+      double adjusted_vr = Math.toDegrees(module_states.getOmega());
       simulated_heading += adjusted_vr * TimedRobot.kDefaultPeriod;
     }
   }
 
+  /** Simulate module physics instead of assuming that modules reach desired state right away
+   *  @return Physics simulation
+   */
+  public SwervePhysics simulatePhysics()
+  {
+    physics = new SwervePhysics(modules.length);
+    for (SwerveModule module : modules)
+      module.simulate(physics);
+    return physics;
+  }
+
+  @Override
+  public void simulationPeriodic()
+  {
+    if (physics == null)
+      return;
+    // Step through the period in small steps for accuracy
+    int steps = (int) Math.round(TimedRobot.kDefaultPeriod / SIMULATION_STEP);
+    for (int s=0; s<steps; ++s)
+      simulate(SIMULATION_STEP);
+    RoboRioSim.setVInVoltage(physics.getBatteryVoltage());
+  }
+
+  /** Advance physics simulation and actual robot position
+   *  @param dt Time step [s]
+   */
+  private void simulate(double dt)
+  {
+    physics.step(dt);
+
+    // Rotation of the robot from the module motion over ground,
+    // modules are front left, front right, back right, back left
+    double torque = 0.0;
+    for (int i=0; i<modules.length; ++i)
+    {
+      double x = i < 2 ? length/2 : -length/2;
+      double y = i == 0 || i == 3 ? width/2 : -width/2;
+      double angle = Math.toRadians(physics.getDegrees(i));
+      double speed = physics.getGroundSpeed(i);
+      torque += x * speed * Math.sin(angle) - y * speed * Math.cos(angle);
+    }
+    double omega = torque / (modules.length * (length*length + width*width) / 4);
+    double heading = Math.toRadians(simulated_heading + true_heading_offset);
+    simulated_heading += Math.toDegrees(omega) * dt;
+
+    // Actual motion from average module motion over ground,
+    // rotated by heading in the middle of the period
+    double vx = 0.0, vy = 0.0;
+    for (int i=0; i<modules.length; ++i)
+    {
+      double angle = Math.toRadians(physics.getDegrees(i));
+      vx += physics.getGroundSpeed(i) * Math.cos(angle) / modules.length;
+      vy += physics.getGroundSpeed(i) * Math.sin(angle) / modules.length;
+    }
+    heading += omega * dt / 2;
+    true_x += (vx * Math.cos(heading) - vy * Math.sin(heading)) * dt;
+    true_y += (vx * Math.sin(heading) + vy * Math.cos(heading)) * dt;
+  }
+
+  /** @return Actual position in physics simulation, which odometry only estimates */
+  public Pose2d getSimulatedPose()
+  {
+    return new Pose2d(true_x, true_y, Rotation2d.fromDegrees(simulated_heading + true_heading_offset));
+  }
+
+  /** Place robot in physics simulation, for example a little off from where odometry believes it starts
+   *  @param x [m]
+   *  @param y [m]
+   *  @param heading [degrees]
+   */
+  public void setSimulatedPose(double x, double y, double heading)
+  {
+    true_x = x;
+    true_y = y;
+    true_heading_offset = heading - simulated_heading;
+  }
+
   @Override
   public void periodic()
   {
+    long start = timing.start();
+    sample();
+
     // Update and publish position
     odometry.update(getHeading(), getPositions());
 
@@ -293,9 +549,9 @@ abstract public class SwerveDrivetrain extends SubsystemBase
     }
 
     Pose2d pose = getPose();
-    nt_x.setDouble(pose.getX());
-    nt_y.setDouble(pose.getY());
-    nt_heading.setDouble(pose.getRotation().getDegrees());
+    nt_x.set(pose.getX());
+    nt_y.set(pose.getY());
+    nt_heading.set(pose.getRotation().getDegrees());
 
     // Example for simulating different origin
     // pose = new Pose2d(pose.getTranslation().rotateBy(Rotation2d.fromDegrees(90))
@@ -303,6 +559,7 @@ abstract public class SwerveDrivetrain extends SubsystemBase
     //                   getHeading().plus(Rotation2d.fromDegrees(90)));
 
     field.setRobotPose(pose);
+    timing.stop(start);
   }
 
   /** @param new_origin New origin for trajectory commands
@@ -313,6 +570,12 @@ abstract public class SwerveDrivetrain extends SubsystemBase
     trajectory_origin = new_origin;
   }
 
+  /** @return Info about how well the last trajectory was followed */
+  public TrackingRecorder getTracking()
+  {
+    return tracking;
+  }
+
   /** @param trajectory Trajectory to follow
    *  @param end_angle Final heading angle
    *  @return Command that follows the trajectory
@@ -335,11 +598,11 @@ abstract public class SwerveDrivetrain extends SubsystemBase
     // Controllers that correct for the x, y and angle to match the trajectory
     // in case simply using the suggested wheel speed settings aren't
     // perfectly placing us on the trajectory
-    PIDController x_pid = new PIDController(nt_xy_p.getDouble(0), 0, 0);
-    PIDController y_pid = new PIDController(nt_xy_p.getDouble(0), 0, 0);
+    PIDController x_pid = new PIDController(nt_xy_p.get(), 0, 0);
+    PIDController y_pid = new PIDController(nt_xy_p.get(), 0, 0);
     // Angle controller is 'profiled', allowing up to 90 deg/sec (and 90 deg/sec/sec acceleration) 
     ProfiledPIDController angle_pid = new ProfiledPIDController(
-      nt_angle_p.getDouble(0), 0, 0,
+      nt_angle_p.get(), 0, 0,
       new TrapezoidProfile.Constraints(Math.toRadians(180), Math.toRadians(180)));
     // ..and 'continuous' because angle wraps around
     angle_pid.enableContinuousInput(-Math.PI, Math.PI);
@@ -349,27 +612,39 @@ abstract public class SwerveDrivetrain extends SubsystemBase
     // which starts out as 0, 0, 0 but may be updated
     Supplier<Pose2d> pose_getter = () -> getPose().relativeTo(trajectory_origin);
 
-    // Track last state of each swerve module
-    AtomicReference<List<String>> last_states = new AtomicReference<>();
+    TrajectoryAnalytics analytics = new TrajectoryAnalytics(trajectory.getTotalTimeSeconds());
+
     // Called by SwerveControllerCommand to tell us what modules should do
     Consumer<SwerveModuleState[]> module_setter = states ->
     {
+        // Commands are typically created once on startup,
+        // so pick up gains that have since been changed on the dashboard
+        if (x_pid.getP() != nt_xy_p.get())
+        {
+          x_pid.setP(nt_xy_p.get());
+          y_pid.setP(nt_xy_p.get());
+        }
+        if (angle_pid.getP() != nt_angle_p.get())
+          angle_pid.setP(nt_angle_p.get());
+        double max_speed = 0.0;
         for (int i=0; i<modules.length; ++i)
         {
-          Rotation2d current_angle = modules[i].getAngle();
-          states[i].optimize(current_angle);
-          states[i].cosineScale(current_angle);
+          module_states.setState(i, states[i].angle.getDegrees(), states[i].speedMetersPerSecond);
+          max_speed = Math.max(max_speed, Math.abs(states[i].speedMetersPerSecond));
         }
-        SwerveDriveKinematics.desaturateWheelSpeeds(states, MAX_METERS_PER_SEC);
+        driveModuleStates();
+
+        tracking.startSample(snapshot.getTimestamp(),
+                             x_pid.getError(), y_pid.getError(), angle_pid.getPositionError(),
+                             x_pid.getP() * x_pid.getError(),
+                             y_pid.getP() * y_pid.getError(),
+                             angle_pid.getP() * angle_pid.getPositionError());
         for (int i=0; i<modules.length; ++i)
-          modules[i].drive(states[i].angle.getDegrees(),
-                           states[i].speedMetersPerSecond);
-        double vr = Math.toDegrees(kinematics.toChassisSpeeds(states).omegaRadiansPerSecond);
-        simulated_heading += vr * TimedRobot.kDefaultPeriod;
-        last_states.set(List.of(states)
-                            .stream()
-                            .map(s -> String.format("%f m/s @ %f deg", s.speedMetersPerSecond, s.angle.getDegrees()))
-                            .toList());
+          tracking.setModule(i, module_states.getAngle(i), module_states.getSpeed(i),
+                                snapshot.getAngle(i), snapshot.getSpeed(i));
+        analytics.update(snapshot.getTimestamp(), x_pid.getSetpoint(), y_pid.getSetpoint(),
+                         x_pid.getError(), y_pid.getError(), angle_pid.getPositionError(),
+                         max_speed / MAX_METERS_PER_SEC);
     };
 
     // Called by SwerveControllerCommand to check at what angle we want to be
@@ -381,16 +656,21 @@ abstract public class SwerveDrivetrain extends SubsystemBase
                                                                     desiredRotation, module_setter);
     if (require_drivetrain)
       follower.addRequirements(this);
-    Command print_last_states = new InstantCommand(() ->
+    Command print_tracking = new InstantCommand(() ->
     {
-      System.out.println("Last swerve states vs. actual heading:");
-      for (int i=0; i<last_states.get().size(); ++i)
-        System.out.println(last_states.get().get(i) + " vs. " + modules[i].getAngle().getDegrees());
+      tracking.print();
       var pose = getPose();
       System.out.println("Position: X=" + pose.getX() + ", Y=" + pose.getY());
     });
     Command do_stop = new InstantCommand(this::stop);
-    return follower.andThen(do_stop);
-                  //  .andThen(print_last_states);
+    Command do_start = new InstantCommand(() ->
+    {
+      tracking.reset();
+      analytics.start(snapshot.getTimestamp());
+    });
+    return follower.beforeStarting(do_start)
+                   .finallyDo(analytics::finish)
+                   .andThen(do_stop);
+                  //  .andThen(print_tracking);
   }
 }
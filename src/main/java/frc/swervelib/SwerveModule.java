@@ -11,6 +11,7 @@ public class SwerveModule
 {
   private final RotatorBase rotator;
   private final DriverBase driver;    
+  private double desired_angle = 0.0, desired_speed = 0.0;
 
   public SwerveModule(RotatorBase rotator, DriverBase driver)
   {
@@ -18,6 +19,20 @@ public class SwerveModule
     this.driver = driver;
   }
 
+  /** Read sensors once for this period */
+  public void sample()
+  {
+    rotator.sample();
+    driver.sample();
+  }
+
+  /** @param physics Physics simulation for rotator and driver */
+  public void simulate(SwervePhysics physics)
+  {
+    rotator.simulate(physics);
+    driver.simulate(physics);
+  }
+
   /** Reset position of driver to zero */
   public void resetPosition()
   {
@@ -30,17 +45,48 @@ public class SwerveModule
     return rotator.getAngle();
   }
 
+  /** @return Angle of rotator in degrees */
+  public double getDegrees()
+  {
+    return rotator.getDegrees();
+  }
+
   /** @return Driver position */
   public SwerveModulePosition getPosition()
   {
     return new SwerveModulePosition(driver.getPosition(), rotator.getAngle());
   }
 
+  /** @return Driver position in meters */
+  public double getDistance()
+  {
+    return driver.getPosition();
+  }
+
+  /** @return Driver speed in meters/sec */
+  public double getSpeed()
+  {
+    return driver.getSpeed();
+  }
+
+  /** @return Last requested angle in degrees */
+  public double getDesiredDegrees()
+  {
+    return desired_angle;
+  }
+
+  /** @return Last requested speed in meters per second */
+  public double getDesiredSpeed()
+  {
+    return desired_speed;
+  }
+
   /** Stop all motors */
   public void stop()
   {
-    rotator.setVoltage(0);
-    driver.setVoltage(0);
+    desired_speed = 0.0;
+    rotator.stop();
+    driver.stop();
   }
 
   /** @param angle Module angle in degrees
@@ -48,6 +94,8 @@ public class SwerveModule
    */
   public void drive(double angle, double speed)
   {
+     desired_angle = angle;
+     desired_speed = speed;
      rotator.setAngle(angle);
      driver.setSpeed(speed);
   }
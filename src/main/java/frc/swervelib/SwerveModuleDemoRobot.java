@@ -19,6 +19,9 @@ public class SwerveModuleDemoRobot extends CommandRobotBase
   @Override
   public void teleopPeriodic()
   {
+    for (SwerveModule module : modules)
+      module.sample();
+
     if (SwerveOI.resetDrivetrain().getAsBoolean())
       for (SwerveModule module : modules)
         module.resetPosition();
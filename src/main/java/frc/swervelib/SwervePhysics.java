@@ -0,0 +1,248 @@
+// Copyright (c) FIRST Team 2393 and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+package frc.swervelib;
+
+import edu.wpi.first.math.system.plant.DCMotor;
+
+/** Physics simulation of swerve modules
+ *
+ *  <p>Each module has a drive and a steer motor, both Krakens,
+ *  simulated like a DCMotorSim from the voltage that
+ *  the Driver resp. Rotator actually send:
+ *  Motor current follows from voltage minus back-EMF,
+ *  limited to the stator current limit, and the resulting torque
+ *  accelerates the wheel resp. the module's steering inertia.
+ *
+ *  <p>Each drive wheel carries a share of the robot mass.
+ *  Its force on the carpet is limited by friction,
+ *  beyond that the wheel slips: It spins up on its own
+ *  while the robot only accelerates at the friction limit.
+ *
+ *  <p>The battery sags with the total current of all motors,
+ *  which limits the voltage that the motors can get.
+ *
+ *  <p>Modules are simulated independently, they're not coupled
+ *  through the chassis. Preallocated, {@link #step} doesn't allocate memory.
+ */
+public class SwervePhysics
+{
+  /** Drive gear ratio, wheel radius [m] */
+  public static double DRIVE_GEARING = 6.75, WHEEL_RADIUS = 0.0508;
+
+  /** Steer gear ratio, inertia of the module around its steering axis [kg m^2] */
+  public static double STEER_GEARING = 150.0 / 7.0, STEER_INERTIA = 0.004;
+
+  /** Viscous friction of steering [Nm per rad/s] */
+  public static double STEER_FRICTION = 0.05;
+
+  /** Inertia of motor rotor [kg m^2] */
+  public static double ROTOR_INERTIA = 5e-5;
+
+  /** Robot mass [kg], wheel friction coefficient */
+  public static double ROBOT_MASS = 60.0, WHEEL_FRICTION = 1.1;
+
+  /** Stator and supply current limits [A], defaults of the TalonFX */
+  public static double CURRENT_LIMIT = 120.0, SUPPLY_LIMIT = 70.0;
+
+  /** Open-circuit battery voltage [V], internal resistance plus wiring [Ohm] */
+  public static double BATTERY_VOLTAGE = 12.5, BATTERY_RESISTANCE = 0.02;
+
+  /** Time step for integration [s] */
+  private static final double SUBSTEP = 0.001;
+
+  /** Battery voltage follows the current with this time constant [s]
+   *  to avoid oscillations between current and voltage
+   */
+  private static final double BATTERY_SMOOTHING = 0.005;
+
+  private final DCMotor motor = DCMotor.getKrakenX60(1);
+  private final int count;
+
+  /** Voltages requested by driver and rotator */
+  private final double[] drive_voltage, steer_voltage;
+
+  /** Drive state: Wheel surface speed, ground speed [m/s], position [m], supply current [A] */
+  private final double[] wheel_speed, ground_speed, position, drive_current;
+
+  /** Steer state: Angle [rad], angular speed [rad/s], supply current [A] */
+  private final double[] angle, steer_speed, steer_current;
+
+  private double battery = BATTERY_VOLTAGE;
+
+  /** @param count Number of modules */
+  public SwervePhysics(int count)
+  {
+    this.count = count;
+    drive_voltage = new double[count];
+    steer_voltage = new double[count];
+    wheel_speed = new double[count];
+    ground_speed = new double[count];
+    position = new double[count];
+    drive_current = new double[count];
+    angle = new double[count];
+    steer_speed = new double[count];
+    steer_current = new double[count];
+  }
+
+  /** @param module Module index
+   *  @param voltage Voltage requested for the drive motor
+   */
+  public void setDriveVoltage(int module, double voltage)
+  {
+    drive_voltage[module] = voltage;
+  }
+
+  /** @param module Module index
+   *  @param voltage Voltage requested for the steer motor
+   */
+  public void setSteerVoltage(int module, double voltage)
+  {
+    steer_voltage[module] = voltage;
+  }
+
+  /** @param module Module index
+   *  @return Drive speed as seen by the motor's encoder [m/s]
+   */
+  public double getSpeed(int module)
+  {
+    return wheel_speed[module];
+  }
+
+  /** @param module Module index
+   *  @return Speed of the module over ground [m/s]
+   */
+  public double getGroundSpeed(int module)
+  {
+    return ground_speed[module];
+  }
+
+  /** @param module Module index
+   *  @return Drive position as seen by the motor's encoder [m]
+   */
+  public double getPosition(int module)
+  {
+    return position[module];
+  }
+
+  /** @param module Module index
+   *  @return Module angle [deg], -180..180
+   */
+  public double getDegrees(int module)
+  {
+    return Math.toDegrees(Math.IEEEremainder(angle[module], 2*Math.PI));
+  }
+
+  /** @return Battery voltage [V] */
+  public double getBatteryVoltage()
+  {
+    return battery;
+  }
+
+  /** @return Total supply current of all motors [A] */
+  public double getCurrent()
+  {
+    double total = 0.0;
+    for (int i=0; i<count; ++i)
+      total += drive_current[i] + steer_current[i];
+    return total;
+  }
+
+  /** Motor current for a voltage at a motor speed,
+   *  limited to the stator and supply current limits
+   *  @param voltage Voltage [V]
+   *  @param speed Motor speed [rad/s]
+   *  @return Stator current [A]
+   */
+  private double current(double voltage, double speed)
+  {
+    double current = (voltage - speed / motor.KvRadPerSecPerVolt) / motor.rOhms;
+    // Supply current is stator current times duty cycle
+    double limit = Math.min(CURRENT_LIMIT, SUPPLY_LIMIT * battery / Math.max(Math.abs(voltage), 0.1));
+    return Math.max(-limit, Math.min(current, limit));
+  }
+
+  /** Advance simulation
+   *  @param dt Time step [s], for example the 0.02 s period
+   */
+  public void step(double dt)
+  {
+    int steps = Math.max(1, (int) Math.round(dt / SUBSTEP));
+    double h = dt / steps;
+
+    // Mass carried by each wheel, and the rotor inertia as seen at the wheel
+    double mass = ROBOT_MASS / count;
+    double rotor_mass = ROTOR_INERTIA * DRIVE_GEARING*DRIVE_GEARING / (WHEEL_RADIUS*WHEEL_RADIUS);
+    double max_force = WHEEL_FRICTION * mass * 9.81;
+    double force_per_amp = motor.KtNMPerAmp * DRIVE_GEARING / WHEEL_RADIUS;
+    double steer_inertia = STEER_INERTIA + ROTOR_INERTIA * STEER_GEARING*STEER_GEARING;
+
+    for (int s=0; s<steps; ++s)
+    {
+      double supply = 0.0;
+      for (int i=0; i<count; ++i)
+      {
+        // Drive motor, voltage limited by battery
+        double voltage = Math.max(-battery, Math.min(drive_voltage[i], battery));
+        double current = current(voltage, wheel_speed[i] * DRIVE_GEARING / WHEEL_RADIUS);
+        double force = force_per_amp * current;
+        // Wheel and ground move together while friction can transfer the force
+        // to the wheel's share of the robot, otherwise wheel slips
+        double slip = wheel_speed[i] - ground_speed[i];
+        if (Math.abs(slip) < 0.01  &&  Math.abs(force) * mass / (mass + rotor_mass) <= max_force)
+        {
+          double accel = force / (mass + rotor_mass);
+          wheel_speed[i] = ground_speed[i] = ground_speed[i] + accel * h;
+        }
+        else
+        {
+          double friction = Math.abs(slip) < 0.01 ? Math.copySign(max_force, force) : Math.copySign(max_force, slip);
+          ground_speed[i] += friction / mass * h;
+          wheel_speed[i] += (force - friction) / rotor_mass * h;
+          // Wheel regains grip when slip changes direction
+          if (slip * (wheel_speed[i] - ground_speed[i]) < 0)
+            wheel_speed[i] = ground_speed[i] = (mass*ground_speed[i] + rotor_mass*wheel_speed[i]) / (mass + rotor_mass);
+        }
+        position[i] += wheel_speed[i] * h;
+        drive_current[i] = Math.abs(current * voltage) / battery;
+
+        // Steer motor
+        voltage = Math.max(-battery, Math.min(steer_voltage[i], battery));
+        current = current(voltage, steer_speed[i] * STEER_GEARING);
+        double torque = motor.KtNMPerAmp * STEER_GEARING * current - STEER_FRICTION * steer_speed[i];
+        steer_speed[i] += torque / steer_inertia * h;
+        angle[i] += steer_speed[i] * h;
+        steer_current[i] = Math.abs(current * voltage) / battery;
+
+        supply += drive_current[i] + steer_current[i];
+      }
+      // Battery sags with supply current
+      double sagged = Math.max(0.0, BATTERY_VOLTAGE - BATTERY_RESISTANCE * supply);
+      battery += (sagged - battery) * h / (h + BATTERY_SMOOTHING);
+    }
+  }
+
+  /** Test code, can run without robot
+   *  @param args Unused
+   */
+  public static void main(String[] args)
+  {
+    SwervePhysics physics = new SwervePhysics(4);
+    // Full voltage on all drive motors, 3 V on steering
+    for (int i=0; i<4; ++i)
+    {
+      physics.setDriveVoltage(i, 12.0);
+      physics.setSteerVoltage(i, 3.0);
+    }
+    System.out.println("  Time  Wheel   Ground  Position  Angle   Battery  Current");
+    for (int period=0; period<=100; ++period)
+    {
+      if (period % 5 == 0)
+        System.out.format("%6.2f  %5.2f   %5.2f   %6.3f    %6.1f  %5.2f    %6.1f\n",
+                          period * 0.02, physics.getSpeed(0), physics.getGroundSpeed(0),
+                          physics.getPosition(0), physics.getDegrees(0),
+                          physics.getBatteryVoltage(), physics.getCurrent());
+      physics.step(0.02);
+    }
+  }
+}
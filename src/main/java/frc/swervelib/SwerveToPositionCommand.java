@@ -6,20 +6,15 @@ package frc.swervelib;
 
 import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.geometry.Pose2d;
-import edu.wpi.first.networktables.NetworkTableEntry;
 import edu.wpi.first.wpilibj.TimedRobot;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.Command;
+import frc.tools.TunableNumber;
 
 /** Command for swerving to a position */
 public class SwerveToPositionCommand extends Command
 {
   /** Proportional gain for distance control */
-  private static final NetworkTableEntry nt_stp_P = SmartDashboard.getEntry("SwerveToPos_P");
-  static
-  {
-    nt_stp_P.setDefaultDouble(3.0);
-  }
+  private static final TunableNumber nt_stp_P = new TunableNumber("SwerveToPos_P", 3.0);
 
   /** Max. speed */
   public static double MAX_SPEED = 2.0;
@@ -27,9 +22,26 @@ public class SwerveToPositionCommand extends Command
   /** Max. acceleration */
   public static double ACCEL = 3.0;
 
+  /** Use motion profile that decelerates in time and
+   *  synchronizes translation and rotation?
+   *  Otherwise P control of speed.
+   *  Also selected by setting "SwerveToPos_Profiled" to 1 on the dashboard.
+   */
+  public static boolean PROFILED = false;
+
+  /** Dashboard selection of the motion profile, read when command starts */
+  private static final TunableNumber nt_profiled = new TunableNumber("SwerveToPos_Profiled", 0);
+
+  /** Max. rotational speed [deg/s] and acceleration [deg/s^2] for profile */
+  public static double MAX_ROTATION = 270, ROTATION_ACCEL = 360;
+
+  /** Proportional gain [1/s] used by the profile close to the goal */
+  private static final double FINAL_P = 8.0;
+
   private final SwerveDrivetrain drivetrain;
   private final double x, y, heading;
-  private double last_speed, distance, angle;
+  private double last_speed, last_rotation, distance, angle, heading_error;
+  private boolean profiled;
 
   /** @param drivetrain
    *  @param x Desired X position
@@ -57,9 +69,12 @@ public class SwerveToPositionCommand extends Command
   @Override
   public void initialize()
   {
+    profiled = PROFILED  ||  nt_profiled.get() > 0;
     last_speed = 0.0;
+    last_rotation = 0.0;
     distance = 20.0;
     angle = 0.0;
+    heading_error = Double.isNaN(heading) ? 0.0 : 180.0;
   }
 
   // We generally rely on the trajectory tools to follow arbitrary paths.
@@ -71,6 +86,12 @@ public class SwerveToPositionCommand extends Command
   // even small moves with this command.
   public void execute()
   {
+    if (profiled)
+    {
+      executeProfile();
+      return;
+    }
+
     // Compute direct line from where we are right now to the desired location
     Pose2d pose = drivetrain.getPose();
     double dx = x - pose.getX();
@@ -81,7 +102,7 @@ public class SwerveToPositionCommand extends Command
     angle = Math.toDegrees(Math.atan2(dy, dx)) - pose.getRotation().getDegrees();
 
     // Proportional control of speed based on distance
-    double speed = Math.min(MAX_SPEED, nt_stp_P.getDouble(0)*distance);
+    double speed = Math.min(MAX_SPEED, nt_stp_P.get()*distance);
 
     // Limit acceleration
     if (speed > last_speed)
@@ -105,9 +126,86 @@ public class SwerveToPositionCommand extends Command
                       Math.toRadians(rotation));
   }
 
+  /** @param distance Distance to move
+   *  @param max_speed Max. speed
+   *  @param accel Acceleration
+   *  @return Time to move distance from rest to rest
+   */
+  private static double getProfileTime(double distance, double max_speed, double accel)
+  {
+    if (distance >= max_speed * max_speed / accel)
+      return distance / max_speed + max_speed / accel;
+    // Never reach max. speed
+    return 2.0 * Math.sqrt(distance / accel);
+  }
+
+  /** @param distance Distance to move
+   *  @param time Time to take
+   *  @param accel Acceleration
+   *  @return Max. speed so moving the distance from rest to rest takes the given time
+   */
+  private static double getProfileSpeed(double distance, double time, double accel)
+  {
+    double disc = accel*accel*time*time - 4.0*accel*distance;
+    if (disc <= 0.0)
+      return Math.sqrt(accel * distance);
+    return (accel*time - Math.sqrt(disc)) / 2.0;
+  }
+
+  /** @param remaining Remaining distance
+   *  @param max_speed Max. speed
+   *  @param accel Acceleration
+   *  @param last_speed Speed of last period
+   *  @return Speed for this period
+   */
+  private static double getSpeed(double remaining, double max_speed, double accel, double last_speed)
+  {
+    // Speed from which we can still stop in time,
+    // and near the goal proportional control to settle
+    double speed = Math.min(max_speed, Math.sqrt(2.0 * accel * remaining));
+    speed = Math.min(speed, FINAL_P * remaining);
+    // Limit acceleration
+    return Math.min(speed, last_speed + accel * TimedRobot.kDefaultPeriod);
+  }
+
+  /** Trapezoidal profile along the direct line to the goal,
+   *  re-computed from the current position each period.
+   *  Translation and rotation are slowed so both end at the same time.
+   */
+  private void executeProfile()
+  {
+    Pose2d pose = drivetrain.getPose();
+    double dx = x - pose.getX();
+    double dy = y - pose.getY();
+    distance = Math.hypot(dx, dy);
+    angle = Math.toDegrees(Math.atan2(dy, dx)) - pose.getRotation().getDegrees();
+    heading_error = Double.isNaN(heading)
+                  ? 0.0
+                  : Math.IEEEremainder(heading - pose.getRotation().getDegrees(), 360.0);
+    double rotation_distance = Math.abs(heading_error);
+
+    // Slow the faster motion to take as long as the slower one
+    double time = Math.max(getProfileTime(distance, MAX_SPEED, ACCEL),
+                           getProfileTime(rotation_distance, MAX_ROTATION, ROTATION_ACCEL));
+    double max_speed    = Math.min(MAX_SPEED,    getProfileSpeed(distance, time, ACCEL));
+    double max_rotation = Math.min(MAX_ROTATION, getProfileSpeed(rotation_distance, time, ROTATION_ACCEL));
+
+    double speed = getSpeed(distance, max_speed, ACCEL, last_speed);
+    double rotation = getSpeed(rotation_distance, max_rotation, ROTATION_ACCEL, last_rotation);
+    last_speed = speed;
+    last_rotation = rotation;
+
+    drivetrain.swerve(speed*Math.cos(Math.toRadians(angle)),
+                      speed*Math.sin(Math.toRadians(angle)),
+                      Math.toRadians(Math.copySign(rotation, heading_error)));
+  }
+
   @Override
   public boolean isFinished()
   {
+    // Profile also needs to reach heading (within a degree)
+    if (profiled  &&  Math.abs(heading_error) > 1.0)
+      return false;
     // Within 0.5 cm?
     return distance < 0.005;
   }
@@ -0,0 +1,145 @@
+// Copyright (c) FIRST Team 2393 and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+package frc.swervelib;
+
+/** Records how well a trajectory is tracked
+ *
+ *  <p>Keeps the most recent samples of pose error, controller feedback
+ *  and desired vs. actual module states in a preallocated ring buffer.
+ *  Recording doesn't allocate memory.
+ *  Samples are only formatted on demand, see {@link #print()}.
+ */
+public class TrackingRecorder
+{
+  /** Values in each sample */
+  public static final int TIME = 0, ERROR_X = 1, ERROR_Y = 2, ERROR_HEADING = 3,
+                          FEEDBACK_X = 4, FEEDBACK_Y = 5, FEEDBACK_HEADING = 6, MODULES = 7;
+
+  /** Module values in each sample, per module starting at MODULES + 4*module */
+  public static final int DESIRED_ANGLE = 0, DESIRED_SPEED = 1, ACTUAL_ANGLE = 2, ACTUAL_SPEED = 3;
+
+  private final int modules, capacity, sample_size;
+  private final double[] data;
+
+  /** Number of samples recorded since reset */
+  private long count = 0;
+
+  /** Offset of sample that's being recorded */
+  private int current = 0;
+
+  /** @param modules Number of swerve modules
+   *  @param capacity Number of samples to keep
+   */
+  public TrackingRecorder(int modules, int capacity)
+  {
+    this.modules = modules;
+    this.capacity = capacity;
+    sample_size = MODULES + 4*modules;
+    data = new double[capacity * sample_size];
+  }
+
+  /** Clear all samples */
+  public void reset()
+  {
+    count = 0;
+  }
+
+  /** Start a new sample
+   *  @param time Timestamp [s]
+   *  @param error_x Pose error X [m]
+   *  @param error_y Pose error Y [m]
+   *  @param error_heading Heading error [rad]
+   *  @param feedback_x Controller output X [m/s]
+   *  @param feedback_y Controller output Y [m/s]
+   *  @param feedback_heading Controller output for rotation [rad/s]
+   */
+  public void startSample(double time,
+                          double error_x, double error_y, double error_heading,
+                          double feedback_x, double feedback_y, double feedback_heading)
+  {
+    current = (int) (count % capacity) * sample_size;
+    data[current + TIME] = time;
+    data[current + ERROR_X] = error_x;
+    data[current + ERROR_Y] = error_y;
+    data[current + ERROR_HEADING] = error_heading;
+    data[current + FEEDBACK_X] = feedback_x;
+    data[current + FEEDBACK_Y] = feedback_y;
+    data[current + FEEDBACK_HEADING] = feedback_heading;
+    ++count;
+  }
+
+  /** Add module info to current sample
+   *  @param module Module index
+   *  @param desired_angle Desired module angle [deg]
+   *  @param desired_speed Desired speed [m/s]
+   *  @param actual_angle Actual module angle [deg]
+   *  @param actual_speed Actual speed [m/s]
+   */
+  public void setModule(int module, double desired_angle, double desired_speed, double actual_angle, double actual_speed)
+  {
+    int pos = current + MODULES + 4*module;
+    data[pos + DESIRED_ANGLE] = desired_angle;
+    data[pos + DESIRED_SPEED] = desired_speed;
+    data[pos + ACTUAL_ANGLE] = actual_angle;
+    data[pos + ACTUAL_SPEED] = actual_speed;
+  }
+
+  /** @return Number of modules */
+  public int getModuleCount()
+  {
+    return modules;
+  }
+
+  /** @return Number of available samples */
+  public int size()
+  {
+    return (int) Math.min(count, capacity);
+  }
+
+  /** @param sample Sample index, 0 for oldest available, size()-1 for newest
+   *  @param value Value like TIME or ERROR_X
+   *  @return Value
+   */
+  public double get(int sample, int value)
+  {
+    long index = count - size() + sample;
+    return data[(int) (index % capacity) * sample_size + value];
+  }
+
+  /** @param sample Sample index, 0 for oldest available, size()-1 for newest
+   *  @param module Module index
+   *  @param value Value like DESIRED_ANGLE
+   *  @return Value
+   */
+  public double getModule(int sample, int module, int value)
+  {
+    return get(sample, MODULES + 4*module + value);
+  }
+
+  /** Print last sample and largest errors */
+  public void print()
+  {
+    int n = size();
+    if (n <= 0)
+    {
+      System.out.println("No trajectory tracking info");
+      return;
+    }
+    double max_xy = 0.0, max_heading = 0.0;
+    for (int i=0; i<n; ++i)
+    {
+      max_xy = Math.max(max_xy, Math.hypot(get(i, ERROR_X), get(i, ERROR_Y)));
+      max_heading = Math.max(max_heading, Math.abs(get(i, ERROR_HEADING)));
+    }
+    System.out.format("Trajectory tracking, %d samples over %.2f s: max. error %.3f m, %.1f deg\n",
+                      n, get(n-1, TIME) - get(0, TIME), max_xy, Math.toDegrees(max_heading));
+    System.out.format("Last error X=%.3f m, Y=%.3f m, heading %.1f deg\n",
+                      get(n-1, ERROR_X), get(n-1, ERROR_Y), Math.toDegrees(get(n-1, ERROR_HEADING)));
+    System.out.println("Last swerve states vs. actual:");
+    for (int i=0; i<modules; ++i)
+      System.out.format("%f m/s @ %f deg vs. %f m/s @ %f deg\n",
+                        getModule(n-1, i, DESIRED_SPEED), getModule(n-1, i, DESIRED_ANGLE),
+                        getModule(n-1, i, ACTUAL_SPEED), getModule(n-1, i, ACTUAL_ANGLE));
+  }
+}
@@ -0,0 +1,194 @@
+// Copyright (c) FIRST Team 2393 and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+package frc.swervelib;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.PrintWriter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.DoubleSupplier;
+
+import edu.wpi.first.wpilibj.Filesystem;
+import frc.tools.Telemetry;
+import frc.tools.Telemetry.Priority;
+
+/** Analytics for how well a trajectory is followed
+ *
+ *  <p>Each period, the error between trajectory setpoint and
+ *  actual position is split into the cross-track error,
+ *  perpendicular to the direction of travel, and the along-track lag.
+ *  These, the heading error and the module saturation,
+ *  i.e. requested module speed over max. speed, are published.
+ *
+ *  <p>At the end of the trajectory, a summary with RMS and max. errors,
+ *  time and energy is kept for the last few runs
+ *  and written to a log file when the robot is disabled.
+ */
+public class TrajectoryAnalytics
+{
+  /** Number of summaries to keep */
+  private static final int RUNS = 10;
+
+  private static final Telemetry.Topic nt_cross = Telemetry.number("Traj Cross Err", 0.001, Priority.LOW),
+                                       nt_lag = Telemetry.number("Traj Lag", 0.001, Priority.LOW),
+                                       nt_heading = Telemetry.number("Traj Heading Err", 0.1, Priority.LOW),
+                                       nt_saturation = Telemetry.number("Traj Saturation", 0.01, Priority.LOW);
+
+  /** Summaries of last runs, newest last */
+  private static final Deque<String> summaries = new ArrayDeque<>();
+
+  /** Summaries that still need to be written to file */
+  private static final List<String> unsaved = new ArrayList<>();
+
+  /** Supplies total energy [J], null if unknown */
+  private static DoubleSupplier energy_supplier = null;
+
+  private static int run = 0;
+
+  private final double planned_time;
+  private double start_time, start_energy, last_time;
+  private double last_x, last_y, dir_x, dir_y;
+  private int count;
+  private double sum_cross, sum_lag, sum_heading, max_cross, max_lag, max_heading, max_saturation;
+
+  /** @param supplier Supplies total energy used by robot [J],
+   *                  for example from PowerDistribution.getTotalEnergy()
+   */
+  public static void setEnergySupplier(DoubleSupplier supplier)
+  {
+    energy_supplier = supplier;
+  }
+
+  /** @param planned_time Total time of the trajectory [s] */
+  public TrajectoryAnalytics(double planned_time)
+  {
+    this.planned_time = planned_time;
+  }
+
+  /** Call when trajectory starts
+   *  @param time Timestamp [s]
+   */
+  public void start(double time)
+  {
+    start_time = last_time = time;
+    start_energy = energy_supplier == null ? 0.0 : energy_supplier.getAsDouble();
+    last_x = last_y = Double.NaN;
+    dir_x = 1.0;
+    dir_y = 0.0;
+    count = 0;
+    sum_cross = sum_lag = sum_heading = 0.0;
+    max_cross = max_lag = max_heading = max_saturation = 0.0;
+  }
+
+  /** Call each period while following the trajectory
+   *  @param time Timestamp [s]
+   *  @param setpoint_x Trajectory setpoint X [m]
+   *  @param setpoint_y Trajectory setpoint Y [m]
+   *  @param error_x Setpoint minus actual X [m]
+   *  @param error_y Setpoint minus actual Y [m]
+   *  @param error_heading Heading error [rad]
+   *  @param saturation Largest requested module speed over max. module speed
+   */
+  public void update(double time, double setpoint_x, double setpoint_y,
+                     double error_x, double error_y, double error_heading,
+                     double saturation)
+  {
+    // Direction of travel from motion of the setpoint,
+    // keeping the last direction while the setpoint doesn't move
+    double dx = setpoint_x - last_x, dy = setpoint_y - last_y;
+    double len = Math.hypot(dx, dy);
+    if (len > 1e-4)
+    {
+      dir_x = dx / len;
+      dir_y = dy / len;
+    }
+    last_x = setpoint_x;
+    last_y = setpoint_y;
+    last_time = time;
+
+    // Lag is the error along the direction of travel (positive: behind),
+    // cross-track error is perpendicular to it
+    double lag = error_x*dir_x + error_y*dir_y;
+    double cross = -error_x*dir_y + error_y*dir_x;
+    double heading = Math.toDegrees(error_heading);
+
+    ++count;
+    sum_cross += cross*cross;
+    sum_lag += lag*lag;
+    sum_heading += heading*heading;
+    max_cross = Math.max(max_cross, Math.abs(cross));
+    max_lag = Math.max(max_lag, Math.abs(lag));
+    max_heading = Math.max(max_heading, Math.abs(heading));
+    max_saturation = Math.max(max_saturation, saturation);
+
+    nt_cross.set(cross);
+    nt_lag.set(lag);
+    nt_heading.set(heading);
+    nt_saturation.set(saturation);
+  }
+
+  /** Call when trajectory ends
+   *  @param interrupted Was the trajectory interrupted?
+   */
+  public void finish(boolean interrupted)
+  {
+    if (count <= 0)
+      return;
+    double energy = energy_supplier == null ? Double.NaN : energy_supplier.getAsDouble() - start_energy;
+    String summary = String.format("Run %3d%s: %5.2f s (planned %5.2f s), " +
+                                   "cross-track RMS %.3f max %.3f m, lag RMS %.3f max %.3f m, " +
+                                   "heading RMS %.1f max %.1f deg, saturation %.2f, energy %.0f J",
+                                   ++run, interrupted ? " (interrupted)" : "",
+                                   last_time - start_time, planned_time,
+                                   Math.sqrt(sum_cross / count), max_cross,
+                                   Math.sqrt(sum_lag / count), max_lag,
+                                   Math.sqrt(sum_heading / count), max_heading,
+                                   max_saturation, energy);
+    System.out.println(summary);
+    synchronized (summaries)
+    {
+      summaries.addLast(summary);
+      while (summaries.size() > RUNS)
+        summaries.removeFirst();
+      unsaved.add(summary);
+    }
+  }
+
+  /** @return Summaries of the last runs, newest last */
+  public static List<String> getSummaries()
+  {
+    synchronized (summaries)
+    {
+      return new ArrayList<>(summaries);
+    }
+  }
+
+  /** Append summaries of runs since last call to "trajectory_tracking.txt" in operating directory */
+  public static void dump()
+  {
+    List<String> lines;
+    synchronized (summaries)
+    {
+      if (unsaved.isEmpty())
+        return;
+      lines = new ArrayList<>(unsaved);
+      unsaved.clear();
+    }
+    File file = new File(Filesystem.getOperatingDirectory(), "trajectory_tracking.txt");
+    try (PrintWriter out = new PrintWriter(new FileWriter(file, true)))
+    {
+      for (String line : lines)
+        out.println(line);
+      System.out.println("Wrote trajectory tracking to " + file);
+    }
+    catch (Exception ex)
+    {
+      System.err.println("Cannot write trajectory tracking to " + file);
+      ex.printStackTrace();
+    }
+  }
+}
@@ -3,17 +3,20 @@
 // the WPILib BSD license file in the root directory of this project.
 package frc.tools;
 
+import java.io.File;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.trajectory.Trajectory;
 import edu.wpi.first.math.trajectory.TrajectoryConfig;
 import edu.wpi.first.math.trajectory.TrajectoryGenerator;
 import edu.wpi.first.math.trajectory.TrajectoryUtil;
 import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj.RobotBase;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.PrintCommand;
 import frc.swervelib.SwerveDrivetrain;
@@ -24,11 +27,20 @@ public class AutoTools
   /** Maximum speed [m/s] and acceleration [m/s/s] for automated trajectories */
   public static TrajectoryConfig config = new TrajectoryConfig(1.5, 1.0);
 
+  /** Cache for trajectories from {@link #createTrajectory}, backed by file in deploy directory */
+  public static final TrajectoryCache cache = new TrajectoryCache(new File(TrajectoryCache.getDeployDirectory(), "trajectories.bin"));
+
+  /** Planner for paths around reef, barge and coral stations */
+  public static final FieldPlanner field = new FieldPlanner();
+
   /** Create trajectory from points
    *
    *  <p>Given list of points must contain entries x, y, h,
    *  i.e., total length of x_y_h array must be a multiple of 3.
    *
+   *  <p>Identical trajectories are only generated once,
+   *  and may be read from the cache file.
+   *
    *  @param forward Are we driving forward along the trajectory?
    *                 (swerve bot might actually face any direction, this is about the trajectory!)
    *  @param x_y_z   Sequence of points { X, Y, Heading }
@@ -43,7 +55,108 @@ public class AutoTools
       waypoints.add(new Pose2d(x_y_h[i], x_y_h[i + 1], Rotation2d.fromDegrees(x_y_h[i + 2])));
 
     config.setReversed(!forward);
-    return TrajectoryGenerator.generateTrajectory(waypoints, config);
+    // Cache key can't describe custom constraints
+    if (! config.getConstraints().isEmpty())
+      return generateTrajectory(waypoints);
+
+    long key = TrajectoryCache.computeKey(TrajectoryCache.SEED,
+                                          forward ? 1 : 0,
+                                          config.getMaxVelocity(),
+                                          config.getMaxAcceleration(),
+                                          config.getStartVelocity(),
+                                          config.getEndVelocity());
+    key = TrajectoryCache.computeKey(key, x_y_h);
+    return cache.get(key, () -> generateTrajectory(waypoints));
+  }
+
+  /** @param waypoints Waypoints
+   *  @return Trajectory through the waypoints, or straight lines between them when the generator fails
+   */
+  private static Trajectory generateTrajectory(List<Pose2d> waypoints)
+  {
+    Trajectory trajectory = TrajectoryGenerator.generateTrajectory(waypoints, config);
+    if (TrajectoryPlanner.isValid(trajectory))
+      return trajectory;
+    System.err.println("Cannot generate trajectory through " + waypoints + ", using straight lines");
+    List<Translation2d> points = new ArrayList<>();
+    for (Pose2d waypoint : waypoints)
+      points.add(waypoint.getTranslation());
+    return TrajectoryPlanner.createPolyline(points, config.getMaxVelocity(), config.getMaxAcceleration());
+  }
+
+  /** Create trajectory around the obstacles on the field
+   *
+   *  <p>Instead of listing points that lead around the reef,
+   *  only start and goal are needed.
+   *  The trajectory's heading is the direction of travel,
+   *  so follow it with the goal's heading as the end angle.
+   *
+   *  @param start Start pose on field
+   *  @param goal Goal pose on field
+   *  @return Trajectory, or straight line if there's no path
+   */
+  public static Trajectory planTrajectory(Pose2d start, Pose2d goal)
+  {
+    config.setReversed(false);
+    Trajectory trajectory = field.createTrajectory(start, goal, config);
+    if (trajectory == null)
+    {
+      System.err.println("No path from " + start + " to " + goal + ", using straight line");
+      return TrajectoryPlanner.createStraightLine(start, goal, config.getMaxVelocity(), config.getMaxAcceleration());
+    }
+    return trajectory;
+  }
+
+  /** Save trajectories to cache file, to be called on the desktop
+   *  after all auto trajectories have been created,
+   *  see frc.robot.PrecomputeTrajectories.
+   *  When deployed, the robot then reads them from the file
+   *  instead of generating them.
+   */
+  public static void saveTrajectories()
+  {
+    if (cache.getGenerated() <= 0)
+      return;
+    try
+    {
+      cache.save();
+    }
+    catch (Exception ex)
+    {
+      System.err.println("Cannot save trajectories");
+      ex.printStackTrace();
+    }
+  }
+
+  /** Load PathWeaver path
+   *
+   *  <p>Prefers the binary "ABC.traj" created by {@link TrajectoryFile},
+   *  falling back to parsing "ABC.wpilib.json"
+   *  when there's no binary file.
+   *  Only in simulation, the binary file is also checked against the JSON file
+   *  since that might have been edited without converting it.
+   *
+   *  @param pathname Base name "ABC" for "deploy/paths/ABC.wpilib.json"
+   *  @return Trajectory
+   *  @throws Exception on error
+   */
+  public static Trajectory loadPathWeaver(String pathname) throws Exception
+  {
+    Path dir = Filesystem.getDeployDirectory().toPath().resolve("paths");
+    File json = dir.resolve(pathname + ".wpilib.json").toFile();
+    File binary = dir.resolve(pathname + ".traj").toFile();
+    if (binary.canRead()  &&  (RobotBase.isReal()  ||  TrajectoryFile.isCurrent(binary, json)))
+    {
+      try
+      {
+        return TrajectoryFile.read(binary);
+      }
+      catch (Exception ex)
+      {
+        System.err.println(ex.getMessage() + ", using JSON");
+      }
+    }
+    return TrajectoryUtil.fromPathweaverJson(json.toPath());
   }
 
   /** Create command that follows a PathWeaver path 
@@ -54,15 +167,14 @@ public class AutoTools
    */
   public static Command followPathWeaver(SwerveDrivetrain drivetrain, String pathname, double final_heading)
   {
-    Path file = Filesystem.getDeployDirectory().toPath().resolve("paths").resolve(pathname + ".wpilib.json");
     try
     {
-      Trajectory trajectory = TrajectoryUtil.fromPathweaverJson(file);
+      Trajectory trajectory = loadPathWeaver(pathname);
       return drivetrain.followTrajectory(trajectory, final_heading);
     }
     catch (Exception ex)
     {
-      System.err.println("Cannot load pathweaver file '" + file + "'");
+      System.err.println("Cannot load pathweaver file '" + pathname + "'");
       ex.printStackTrace();
     }
     return new PrintCommand("Error loading '" + pathname + "'");
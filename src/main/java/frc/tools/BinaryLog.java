@@ -0,0 +1,410 @@
+// Copyright (c) FIRST Team 2393 and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+package frc.tools;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/** Binary log of fixed-size records
+ *
+ *  <p>Each period, the robot sets the values of all channels
+ *  and then writes one record.
+ *  Records are added to preallocated pages,
+ *  and a background thread writes full pages to the file.
+ *  When no page is available because the file can't keep up,
+ *  records are dropped instead of waiting.
+ *  Writing a record doesn't allocate memory.
+ *
+ *  <p>In addition, named events like the start and end of a command can be logged.
+ *
+ *  <p>File format, little endian:
+ *  <pre>
+ *  int magic, int version, int channel count,
+ *  for each channel: short length, UTF-8 name
+ *  Then records, each starting with a type byte:
+ *  'D' double timestamp, then float for each channel
+ *  'N' short name ID, short length, UTF-8 name, defines name before first use
+ *  'S' double timestamp, short name ID: Start of something, for example a command
+ *  'E' double timestamp, short name ID: End
+ *  </pre>
+ *
+ *  <p>Use {@link Reader} to read a log file,
+ *  or {@link #main} to convert it to CSV.
+ */
+public class BinaryLog
+{
+  private static final int MAGIC = 0x474C4254; // "TBLG"
+  private static final int VERSION = 1;
+  private static final int PAGE_SIZE = 64 * 1024, PAGES = 8;
+  private static final byte DATA = 'D', NAME = 'N', START = 'S', END = 'E';
+
+  private final File file;
+  private final FileChannel channel;
+  private final float[] values;
+
+  /** Pages that can be filled, and full pages to write */
+  private final ArrayBlockingQueue<ByteBuffer> free = new ArrayBlockingQueue<>(PAGES),
+                                               full = new ArrayBlockingQueue<>(PAGES);
+
+  /** Page that is currently filled, null when none was available */
+  private ByteBuffer page;
+
+  /** IDs of event names */
+  private final Map<String, Integer> names = new HashMap<>();
+
+  private volatile long records = 0, dropped = 0;
+
+  /** Create log file and start writer thread
+   *  @param file Log file
+   *  @param channels Channel names
+   *  @throws Exception on error
+   */
+  public BinaryLog(File file, List<String> channels) throws Exception
+  {
+    this.file = file;
+    values = new float[channels.size()];
+    channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+
+    for (int i=0; i<PAGES; ++i)
+      free.add(ByteBuffer.allocateDirect(PAGE_SIZE).order(ByteOrder.LITTLE_ENDIAN));
+    page = free.poll();
+
+    page.putInt(MAGIC);
+    page.putInt(VERSION);
+    page.putInt(channels.size());
+    for (String name : channels)
+      putString(name);
+
+    Thread writer = new Thread(this::writePages, "BinaryLog");
+    writer.setDaemon(true);
+    writer.start();
+  }
+
+  /** @return Log file */
+  public File getFile()
+  {
+    return file;
+  }
+
+  /** @param channel Channel index
+   *  @param value Value to log in next record
+   */
+  public void set(int channel, double value)
+  {
+    values[channel] = (float) value;
+  }
+
+  /** Write record with current channel values
+   *  @param timestamp Timestamp [s]
+   */
+  public void write(double timestamp)
+  {
+    if (! reserve(1 + 8 + 4*values.length))
+      return;
+    page.put(DATA);
+    page.putDouble(timestamp);
+    for (float value : values)
+      page.putFloat(value);
+    ++records;
+  }
+
+  /** Log an event
+   *  @param timestamp Timestamp [s]
+   *  @param name Name of event, for example command name
+   *  @param start Start or end of the event?
+   */
+  public void event(double timestamp, String name, boolean start)
+  {
+    Integer id = names.get(name);
+    if (id == null)
+    { // Define name once
+      byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+      if (! reserve(1 + 2 + 2 + bytes.length))
+        return;
+      id = names.size();
+      names.put(name, id);
+      page.put(NAME);
+      page.putShort(id.shortValue());
+      page.putShort((short) bytes.length);
+      page.put(bytes);
+    }
+    if (! reserve(1 + 8 + 2))
+      return;
+    page.put(start ? START : END);
+    page.putDouble(timestamp);
+    page.putShort(id.shortValue());
+  }
+
+  /** Hand current page to writer, even if it's not full,
+   *  for example when robot is disabled
+   */
+  public void flush()
+  {
+    if (page != null  &&  page.position() > 0)
+      handOff();
+  }
+
+  /** @return Number of records written */
+  public long getRecords()
+  {
+    return records;
+  }
+
+  /** @return Number of records or events dropped because no page was available */
+  public long getDropped()
+  {
+    return dropped;
+  }
+
+  /** @param bytes Number of bytes needed on current page
+   *  @return true if there's room, false if record needs to be dropped
+   */
+  private boolean reserve(int bytes)
+  {
+    if (page != null  &&  page.remaining() < bytes)
+      handOff();
+    if (page == null)
+    { // Check if writer has freed a page
+      page = free.poll();
+      if (page == null)
+      {
+        ++dropped;
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Pass current page to writer, get next page if there is one */
+  private void handOff()
+  {
+    page.flip();
+    // Never fails because there are only PAGES buffers
+    full.offer(page);
+    page = free.poll();
+  }
+
+  private void putString(String text)
+  {
+    byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+    page.putShort((short) bytes.length);
+    page.put(bytes);
+  }
+
+  /** Writer thread */
+  private void writePages()
+  {
+    try
+    {
+      while (true)
+      {
+        ByteBuffer full_page = full.take();
+        while (full_page.hasRemaining())
+          channel.write(full_page);
+        full_page.clear();
+        free.offer(full_page);
+      }
+    }
+    catch (Exception ex)
+    {
+      System.err.println("Cannot write " + file);
+      ex.printStackTrace();
+    }
+  }
+
+  /** Reader for a log file
+   *
+   *  <p>Steps through the data records,
+   *  keeping track of the events that are active
+   *  for example to replay a log.
+   */
+  public static class Reader implements AutoCloseable
+  {
+    private final DataInputStream in;
+    private final List<String> channels = new ArrayList<>();
+    private final float[] values;
+    private final List<String> names = new ArrayList<>();
+    private final Set<String> active = new LinkedHashSet<>();
+    private double time = Double.NaN;
+    private long records = 0;
+
+    /** @param file Log file
+     *  @throws Exception on error
+     */
+    public Reader(File file) throws Exception
+    {
+      in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+      if (readIntLE(in) != MAGIC  ||  readIntLE(in) != VERSION)
+      {
+        in.close();
+        throw new Exception(file + " is not a binary log file");
+      }
+      int count = readIntLE(in);
+      for (int i=0; i<count; ++i)
+        channels.add(readString(in));
+      values = new float[count];
+    }
+
+    /** @return Channel names */
+    public List<String> getChannels()
+    {
+      return channels;
+    }
+
+    /** @param name Channel name
+     *  @return Channel index
+     *  @throws Exception if there is no such channel
+     */
+    public int getChannel(String name) throws Exception
+    {
+      int index = channels.indexOf(name);
+      if (index < 0)
+        throw new Exception("Log has no channel '" + name + "'");
+      return index;
+    }
+
+    /** Read next data record, handling events on the way
+     *  @return true if there was another record, false at end of file
+     *  @throws Exception on error
+     */
+    public boolean next() throws Exception
+    {
+      while (true)
+      {
+        int type = in.read();
+        if (type < 0)
+          return false;
+        if (type == DATA)
+        {
+          time = readDoubleLE(in);
+          for (int i=0; i<values.length; ++i)
+            values[i] = Float.intBitsToFloat(readIntLE(in));
+          ++records;
+          return true;
+        }
+        else if (type == NAME)
+        {
+          int id = readShortLE(in);
+          String name = readString(in);
+          while (names.size() <= id)
+            names.add("");
+          names.set(id, name);
+        }
+        else if (type == START  ||  type == END)
+        {
+          readDoubleLE(in);
+          String name = names.get(readShortLE(in));
+          if (type == START)
+            active.add(name);
+          else
+            active.remove(name);
+        }
+        else
+          throw new Exception("Unknown record type " + type + " after " + records + " records");
+      }
+    }
+
+    /** @return Timestamp of current record [s] */
+    public double getTime()
+    {
+      return time;
+    }
+
+    /** @param channel Channel index
+     *  @return Value of channel in current record
+     */
+    public double get(int channel)
+    {
+      return values[channel];
+    }
+
+    /** @return Events (commands) that are active at the current record */
+    public Set<String> getActive()
+    {
+      return active;
+    }
+
+    @Override
+    public void close() throws Exception
+    {
+      in.close();
+    }
+  }
+
+  private static int readIntLE(DataInputStream in) throws IOException
+  {
+    return Integer.reverseBytes(in.readInt());
+  }
+
+  private static short readShortLE(DataInputStream in) throws IOException
+  {
+    return Short.reverseBytes(in.readShort());
+  }
+
+  private static double readDoubleLE(DataInputStream in) throws IOException
+  {
+    return Double.longBitsToDouble(Long.reverseBytes(in.readLong()));
+  }
+
+  private static String readString(DataInputStream in) throws IOException
+  {
+    byte[] bytes = new byte[readShortLE(in)];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /** Convert log file to CSV
+   *
+   *  <p>Each data record becomes one line,
+   *  with a last column that lists the active events (commands).
+   *
+   *  @param args Log file, CSV file (defaults to log file name with .csv)
+   *  @throws Exception on error
+   */
+  public static void main(String[] args) throws Exception
+  {
+    if (args.length < 1)
+    {
+      System.out.println("USAGE: BinaryLog log.bin [log.csv]");
+      return;
+    }
+    File csv = new File(args.length > 1 ? args[1] : args[0].replaceAll("\\.bin$", "") + ".csv");
+    try (Reader log = new Reader(new File(args[0]));
+         PrintWriter out = new PrintWriter(csv))
+    {
+      out.print("Time");
+      for (String name : log.getChannels())
+        out.print("," + name);
+      out.println(",Active");
+
+      int count = log.getChannels().size();
+      long lines = 0;
+      while (log.next())
+      {
+        out.print(log.getTime());
+        for (int i=0; i<count; ++i)
+          out.print("," + (float) log.get(i));
+        out.println("," + String.join("|", log.getActive()));
+        ++lines;
+      }
+      System.out.println("Wrote " + lines + " lines to " + csv);
+    }
+  }
+}
@@ -22,6 +22,9 @@ public class CommandRobotBase extends TimedRobot
 
     // Show currently running commands on dashboard
     SmartDashboard.putData(CommandScheduler.getInstance());
+
+    // Time commands
+    LoopTiming.install();
   }
 
   /** Run command scheduler.
@@ -30,14 +33,29 @@ public class CommandRobotBase extends TimedRobot
   @Override
   public void robotPeriodic()
   {
-    // Support commmand framework
-    CommandScheduler.getInstance().run();
+    // Support commmand framework, timing subsystems and commands
+    LoopTiming.runScheduler();
+    LoopTiming.publish();
   }
 
+  /** Run one period, then publish telemetry
+   *  once all of robotPeriodic() and the mode's periodic code set their values
+   */
+  @Override
+  protected void loopFunc()
+  {
+    super.loopFunc();
+    Telemetry.flush();
+  }
+
+  /** Save loop timing.
+   *  Overriding code should call `super.disabledInit()`.
+   */
   @Override
   public void disabledInit()
   {
     // Code that would run when robot gets disabled
+    LoopTiming.dump();
   }  
 
   @Override
@@ -0,0 +1,468 @@
+// Copyright (c) FIRST Team 2393 and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+package frc.tools;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.trajectory.Trajectory;
+import edu.wpi.first.math.trajectory.TrajectoryConfig;
+import edu.wpi.first.math.trajectory.TrajectoryGenerator;
+
+/** Path planner that knows the field
+ *
+ *  <p>Obstacles are convex polygons for the reefs, the barge
+ *  and the coral station corners, grown by the robot radius.
+ *  Their corners form a visibility graph, with the cost of each edge
+ *  between corners that can see each other computed once.
+ *  A query connects start and goal to the graph,
+ *  finds the shortest path via A*, and creates a smooth trajectory
+ *  through the corners of that path.
+ *  Since the spline may swing wide at a corner and into an obstacle,
+ *  the trajectory is checked, adding waypoints along the path when it
+ *  clips an obstacle, or finally following the path corner by corner.
+ *
+ *  <p>Start or goal right at an obstacle, for example
+ *  a destination at the reef, are inside the grown obstacle.
+ *  Moves from or to such a point only need to avoid the actual obstacle.
+ *
+ *  <p>Planner is immutable after construction and may be used from any thread.
+ */
+public class FieldPlanner
+{
+  /** Field size [m] */
+  public static final double FIELD_LENGTH = 17.548, FIELD_WIDTH = 8.052;
+
+  /** Radius of the robot including bumpers [m] */
+  public static final double ROBOT_RADIUS = 0.45;
+
+  /** Reef centers [m] and distance from center to corners [m] */
+  private static final double BLUE_REEF_X = 4.489, RED_REEF_X = 13.059, REEF_Y = 4.026, REEF_RADIUS = 0.96;
+
+  /** Barge [m], approximate */
+  private static final double BARGE_X = FIELD_LENGTH/2, BARGE_DEPTH = 0.2, BARGE_START_Y = 4.34;
+
+  /** Size of coral station corners along the walls [m] */
+  private static final double STATION_X = 1.70, STATION_Y = 1.27;
+
+  /** Corners of graph nodes are moved this much beyond the grown obstacles [m] */
+  private static final double CLEARANCE = 0.01;
+
+  /** Increment when changing how trajectories are planned */
+  private static final int VERSION = 2;
+
+  /** How often to add waypoints when the trajectory clips an obstacle */
+  private static final int REFINEMENTS = 3;
+
+  private static final double EPSILON = 1e-6;
+
+  /** Obstacles and grown obstacles, each polygon is { x0, y0, x1, y1, ... }, counter-clockwise */
+  private final List<double[]> obstacles = new ArrayList<>(), grown = new ArrayList<>();
+
+  /** Graph nodes */
+  private final double[] node_x, node_y;
+
+  /** Cost of edge between nodes, infinite if they can't see each other */
+  private final double[][] cost;
+
+  /** Key for obstacles and settings */
+  private final long key;
+
+  /** Create planner for the field */
+  public FieldPlanner()
+  {
+    addObstacle(hexagon(BLUE_REEF_X, REEF_Y, REEF_RADIUS));
+    addObstacle(hexagon(RED_REEF_X, REEF_Y, REEF_RADIUS));
+    addObstacle(new double[] { BARGE_X - BARGE_DEPTH, BARGE_START_Y,
+                               BARGE_X + BARGE_DEPTH, BARGE_START_Y,
+                               BARGE_X + BARGE_DEPTH, FIELD_WIDTH,
+                               BARGE_X - BARGE_DEPTH, FIELD_WIDTH });
+    addObstacle(new double[] { 0, 0, STATION_X, 0, 0, STATION_Y });
+    addObstacle(new double[] { 0, FIELD_WIDTH, 0, FIELD_WIDTH - STATION_Y, STATION_X, FIELD_WIDTH });
+    addObstacle(new double[] { FIELD_LENGTH, 0, FIELD_LENGTH, STATION_Y, FIELD_LENGTH - STATION_X, 0 });
+    addObstacle(new double[] { FIELD_LENGTH, FIELD_WIDTH, FIELD_LENGTH - STATION_X, FIELD_WIDTH, FIELD_LENGTH, FIELD_WIDTH - STATION_Y });
+
+    // Corners of grown obstacles that are reachable become nodes
+    List<double[]> nodes = new ArrayList<>();
+    for (double[] polygon : grown)
+    {
+      double[] corners = offset(polygon, CLEARANCE);
+      for (int i=0; i<corners.length; i+=2)
+        if (isFree(corners[i], corners[i+1]))
+          nodes.add(new double[] { corners[i], corners[i+1] });
+    }
+    int n = nodes.size();
+    node_x = new double[n];
+    node_y = new double[n];
+    for (int i=0; i<n; ++i)
+    {
+      node_x[i] = nodes.get(i)[0];
+      node_y[i] = nodes.get(i)[1];
+    }
+
+    cost = new double[n][n];
+    for (int i=0; i<n; ++i)
+      for (int j=i+1; j<n; ++j)
+        cost[i][j] = cost[j][i] = isClear(node_x[i], node_y[i], node_x[j], node_y[j], -1, -1)
+                                ? Math.hypot(node_x[j] - node_x[i], node_y[j] - node_y[i])
+                                : Double.POSITIVE_INFINITY;
+
+    long hash = TrajectoryCache.computeKey(TrajectoryCache.SEED, VERSION, ROBOT_RADIUS, CLEARANCE, REFINEMENTS);
+    for (double[] polygon : obstacles)
+      hash = TrajectoryCache.computeKey(hash, polygon);
+    key = hash;
+  }
+
+  /** Key of the obstacles, robot size and planner settings,
+   *  changes whenever the planned trajectories would change
+   *  @return Key to start a {@link TrajectoryCache#computeKey}
+   */
+  public long getKey()
+  {
+    return key;
+  }
+
+  /** @return Number of nodes in the visibility graph */
+  public int getNodeCount()
+  {
+    return node_x.length;
+  }
+
+  private void addObstacle(double[] polygon)
+  {
+    obstacles.add(polygon);
+    grown.add(offset(polygon, ROBOT_RADIUS));
+  }
+
+  /** @return Hexagon with flat sides facing 0, 60, .. degrees */
+  private static double[] hexagon(double x, double y, double radius)
+  {
+    double[] polygon = new double[12];
+    for (int i=0; i<6; ++i)
+    {
+      double angle = Math.toRadians(30 + 60*i);
+      polygon[2*i] = x + radius * Math.cos(angle);
+      polygon[2*i+1] = y + radius * Math.sin(angle);
+    }
+    return polygon;
+  }
+
+  /** Grow convex polygon by moving each side outward
+   *  @param polygon Counter-clockwise polygon
+   *  @param distance Distance [m]
+   *  @return Grown polygon
+   */
+  private static double[] offset(double[] polygon, double distance)
+  {
+    int n = polygon.length / 2;
+    double[] result = new double[polygon.length];
+    for (int i=0; i<n; ++i)
+    {
+      int prev = (i + n - 1) % n, next = (i + 1) % n;
+      // Outward normals of the sides before and after this corner
+      double[] n1 = normal(polygon, prev, i), n2 = normal(polygon, i, next);
+      double scale = distance / (1 + n1[0]*n2[0] + n1[1]*n2[1]);
+      result[2*i]   = polygon[2*i]   + scale * (n1[0] + n2[0]);
+      result[2*i+1] = polygon[2*i+1] + scale * (n1[1] + n2[1]);
+    }
+    return result;
+  }
+
+  /** @return Outward unit normal of side from corner a to corner b of counter-clockwise polygon */
+  private static double[] normal(double[] polygon, int a, int b)
+  {
+    double dx = polygon[2*b] - polygon[2*a], dy = polygon[2*b+1] - polygon[2*a+1];
+    double len = Math.hypot(dx, dy);
+    return new double[] { dy / len, -dx / len };
+  }
+
+  /** @return Is point inside convex polygon? */
+  private static boolean isInside(double[] polygon, double x, double y)
+  {
+    int n = polygon.length / 2;
+    for (int i=0; i<n; ++i)
+    {
+      int next = (i + 1) % n;
+      double cross = (polygon[2*next] - polygon[2*i]) * (y - polygon[2*i+1])
+                   - (polygon[2*next+1] - polygon[2*i+1]) * (x - polygon[2*i]);
+      if (cross <= 0)
+        return false;
+    }
+    return true;
+  }
+
+  /** Does segment pass through the inside of a convex polygon? (Cyrus-Beck clipping) */
+  private static boolean crosses(double[] polygon, double x0, double y0, double x1, double y1)
+  {
+    double t_in = 0.0, t_out = 1.0;
+    double dx = x1 - x0, dy = y1 - y0;
+    int n = polygon.length / 2;
+    for (int i=0; i<n; ++i)
+    {
+      int next = (i + 1) % n;
+      // Inward normal of side i
+      double nx = -(polygon[2*next+1] - polygon[2*i+1]), ny = polygon[2*next] - polygon[2*i];
+      double num = nx * (x0 - polygon[2*i]) + ny * (y0 - polygon[2*i+1]);
+      double den = nx * dx + ny * dy;
+      if (Math.abs(den) < EPSILON)
+      {
+        if (num <= 0)
+          return false;
+      }
+      else
+      {
+        double t = -num / den;
+        if (den > 0)
+          t_in = Math.max(t_in, t);
+        else
+          t_out = Math.min(t_out, t);
+        if (t_in >= t_out - EPSILON)
+          return false;
+      }
+    }
+    return true;
+  }
+
+  /** @return Is point inside the field and outside of all grown obstacles? */
+  private boolean isFree(double x, double y)
+  {
+    if (x < ROBOT_RADIUS  ||  x > FIELD_LENGTH - ROBOT_RADIUS  ||
+        y < ROBOT_RADIUS  ||  y > FIELD_WIDTH - ROBOT_RADIUS)
+      return false;
+    for (double[] polygon : grown)
+      if (isInside(polygon, x, y))
+        return false;
+    return true;
+  }
+
+  /** @return Index of grown obstacle that contains the point, -1 if none */
+  private int findObstacle(double x, double y)
+  {
+    for (int i=0; i<grown.size(); ++i)
+      if (isInside(grown.get(i), x, y))
+        return i;
+    return -1;
+  }
+
+  /** Check if robot can move straight between two points
+   *  @param skip0 Obstacle that contains the start point, or -1
+   *  @param skip1 Obstacle that contains the end point, or -1
+   *  @return true if there's no obstacle in the way
+   */
+  private boolean isClear(double x0, double y0, double x1, double y1, int skip0, int skip1)
+  {
+    for (int i=0; i<grown.size(); ++i)
+    {
+      // For obstacles that contain the start or end, only avoid the actual obstacle
+      double[] polygon = (i == skip0  ||  i == skip1) ? obstacles.get(i) : grown.get(i);
+      if (crosses(polygon, x0, y0, x1, y1))
+        return false;
+    }
+    return true;
+  }
+
+  /** @param start Start point
+   *  @param goal End point
+   *  @return Can robot move straight from start to goal?
+   */
+  public boolean isClear(Translation2d start, Translation2d goal)
+  {
+    return isClear(start.getX(), start.getY(), goal.getX(), goal.getY(),
+                   findObstacle(start.getX(), start.getY()), findObstacle(goal.getX(), goal.getY()));
+  }
+
+  /** Check if trajectory avoids the obstacles
+   *  @param trajectory Trajectory
+   *  @param skip0 Obstacle that contains the start point, or -1
+   *  @param skip1 Obstacle that contains the end point, or -1
+   *  @return true if no step of the trajectory passes through an obstacle
+   */
+  private boolean isClear(Trajectory trajectory, int skip0, int skip1)
+  {
+    if (! TrajectoryPlanner.isValid(trajectory))
+      return false;
+    List<Trajectory.State> states = trajectory.getStates();
+    for (int i=1; i<states.size(); ++i)
+    {
+      Translation2d a = states.get(i-1).poseMeters.getTranslation(), b = states.get(i).poseMeters.getTranslation();
+      if (! isClear(a.getX(), a.getY(), b.getX(), b.getY(), skip0, skip1))
+        return false;
+    }
+    return true;
+  }
+
+  /** Find shortest path
+   *  @param start Start point
+   *  @param goal End point
+   *  @return Points from start to goal, null if there is no path
+   */
+  public List<Translation2d> findPath(Translation2d start, Translation2d goal)
+  {
+    List<Translation2d> path = new ArrayList<>();
+    int start_obstacle = findObstacle(start.getX(), start.getY()),
+        goal_obstacle = findObstacle(goal.getX(), goal.getY());
+    if (isClear(start.getX(), start.getY(), goal.getX(), goal.getY(), start_obstacle, goal_obstacle))
+    {
+      path.add(start);
+      path.add(goal);
+      return path;
+    }
+
+    // A* over graph nodes 0..n-1, start is node n, goal is reached from any node that sees it
+    int n = node_x.length;
+    double[] distance = new double[n];
+    double[] to_goal = new double[n];
+    int[] previous = new int[n];
+    boolean[] done = new boolean[n];
+    for (int i=0; i<n; ++i)
+    {
+      distance[i] = isClear(start.getX(), start.getY(), node_x[i], node_y[i], start_obstacle, -1)
+                  ? Math.hypot(node_x[i] - start.getX(), node_y[i] - start.getY())
+                  : Double.POSITIVE_INFINITY;
+      previous[i] = -1;
+      to_goal[i] = isClear(node_x[i], node_y[i], goal.getX(), goal.getY(), -1, goal_obstacle)
+                 ? Math.hypot(goal.getX() - node_x[i], goal.getY() - node_y[i])
+                 : Double.POSITIVE_INFINITY;
+    }
+
+    double best = Double.POSITIVE_INFINITY;
+    int last = -1;
+    while (true)
+    {
+      // Open node with lowest estimated total cost
+      int current = -1;
+      double lowest = Double.POSITIVE_INFINITY;
+      for (int i=0; i<n; ++i)
+        if (!done[i]  &&  distance[i] < Double.POSITIVE_INFINITY)
+        {
+          double estimate = distance[i] + Math.hypot(goal.getX() - node_x[i], goal.getY() - node_y[i]);
+          if (estimate < lowest)
+          {
+            lowest = estimate;
+            current = i;
+          }
+        }
+      // Done when no open node can beat the best path to the goal
+      if (current < 0  ||  lowest >= best)
+        break;
+      done[current] = true;
+      if (distance[current] + to_goal[current] < best)
+      {
+        best = distance[current] + to_goal[current];
+        last = current;
+      }
+      for (int i=0; i<n; ++i)
+        if (!done[i]  &&  distance[current] + cost[current][i] < distance[i])
+        {
+          distance[i] = distance[current] + cost[current][i];
+          previous[i] = current;
+        }
+    }
+    if (last < 0)
+      return null;
+
+    for (int i=last; i>=0; i=previous[i])
+      path.add(0, new Translation2d(node_x[i], node_y[i]));
+    path.add(0, start);
+    path.add(goal);
+    return path;
+  }
+
+  /** Create trajectory around obstacles
+   *
+   *  <p>The trajectory's heading is the direction of travel.
+   *  A swerve drivetrain can rotate to the goal's heading
+   *  independent from the trajectory.
+   *
+   *  <p>When the spline through the corners of the path clips an obstacle,
+   *  waypoints are added halfway between the points of the path
+   *  to keep the spline closer to it.
+   *  If that doesn't help, the trajectory follows the path in straight lines,
+   *  stopping at each corner.
+   *
+   *  @param start Start pose
+   *  @param goal Goal pose
+   *  @param config Trajectory configuration
+   *  @return Trajectory, null if there is no path
+   */
+  public Trajectory createTrajectory(Pose2d start, Pose2d goal, TrajectoryConfig config)
+  {
+    List<Translation2d> path = findPath(start.getTranslation(), goal.getTranslation());
+    if (path == null)
+      return null;
+    int start_obstacle = findObstacle(start.getX(), start.getY()),
+        goal_obstacle = findObstacle(goal.getX(), goal.getY());
+
+    List<Translation2d> waypoints = path;
+    for (int refinement=0; refinement<=REFINEMENTS; ++refinement)
+    {
+      if (refinement > 0)
+        waypoints = subdivide(waypoints);
+      Trajectory trajectory = createSpline(waypoints, config);
+      if (isClear(trajectory, start_obstacle, goal_obstacle))
+        return trajectory;
+    }
+
+    return TrajectoryPlanner.createPolyline(path, config.getMaxVelocity(), config.getMaxAcceleration());
+  }
+
+  /** @param path Points from start to goal
+   *  @param config Trajectory configuration
+   *  @return Spline trajectory through the points
+   */
+  private static Trajectory createSpline(List<Translation2d> path, TrajectoryConfig config)
+  {
+    int last = path.size() - 1;
+    Rotation2d start_direction = path.get(1).minus(path.get(0)).getAngle();
+    Rotation2d end_direction = path.get(last).minus(path.get(last - 1)).getAngle();
+    return TrajectoryGenerator.generateTrajectory(new Pose2d(path.get(0), start_direction),
+                                                  path.subList(1, last),
+                                                  new Pose2d(path.get(last), end_direction),
+                                                  config);
+  }
+
+  /** @param path Points from start to goal
+   *  @return Path with an additional point halfway between each pair of points
+   */
+  private static List<Translation2d> subdivide(List<Translation2d> path)
+  {
+    List<Translation2d> result = new ArrayList<>();
+    for (int i=1; i<path.size(); ++i)
+    {
+      result.add(path.get(i-1));
+      result.add(path.get(i-1).plus(path.get(i)).times(0.5));
+    }
+    result.add(path.get(path.size()-1));
+    return result;
+  }
+
+  /** Test code, can run without robot
+   *  @param args Unused
+   */
+  public static void main(String[] args)
+  {
+    FieldPlanner planner = new FieldPlanner();
+    System.out.println("Visibility graph with " + planner.getNodeCount() + " nodes");
+
+    // From blue starting line, around the reef to the far side
+    Translation2d start = new Translation2d(7.2, 6.1), goal = new Translation2d(3.0, 4.0);
+    System.out.println("Path " + planner.findPath(start, goal));
+
+    // From reef to coral station, both inside grown obstacles
+    start = new Translation2d(5.8, 4.0);
+    goal = new Translation2d(1.2, 1.0);
+    System.out.println("Path " + planner.findPath(start, goal));
+
+    Trajectory trajectory = planner.createTrajectory(new Pose2d(start, Rotation2d.kZero),
+                                                     new Pose2d(goal, Rotation2d.kZero),
+                                                     new TrajectoryConfig(3.0, 2.0));
+    System.out.format("Trajectory: %.2f s, %d states, clear: %s\n",
+                      trajectory.getTotalTimeSeconds(), trajectory.getStates().size(),
+                      planner.isClear(trajectory, planner.findObstacle(start.getX(), start.getY()),
+                                      planner.findObstacle(goal.getX(), goal.getY())));
+  }
+}
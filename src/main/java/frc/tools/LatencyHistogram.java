@@ -0,0 +1,97 @@
+// Copyright (c) FIRST Team 2393 and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+package frc.tools;
+
+/** Histogram of durations in nanoseconds
+ *
+ *  <p>Similar to an HDR histogram: Each power of two
+ *  is split into 8 buckets, so percentiles are accurate
+ *  to about 12%, from microseconds up to several seconds,
+ *  using a fixed array of counters.
+ *  Recording a value doesn't allocate any memory.
+ */
+public class LatencyHistogram
+{
+  /** Buckets per power of two */
+  private static final int SUB_BITS = 3, SUB = 1 << SUB_BITS;
+
+  /** Values below 2^MIN_EXP ns (~1 us) share the first SUB buckets,
+   *  values above 2^MAX_EXP ns (~17 s) end up in the last bucket
+   */
+  private static final int MIN_EXP = 10, MAX_EXP = 34;
+
+  private final long[] counts = new long[(MAX_EXP - MIN_EXP + 2) * SUB];
+  private long count = 0, max = 0;
+
+  /** @param ns Duration in nanoseconds */
+  public void record(long ns)
+  {
+    if (ns < 0)
+      ns = 0;
+    ++counts[getBucket(ns)];
+    ++count;
+    if (ns > max)
+      max = ns;
+  }
+
+  private static int getBucket(long ns)
+  {
+    if (ns < (1L << MIN_EXP))
+      return (int) (ns >> (MIN_EXP - SUB_BITS));
+    int exp = 63 - Long.numberOfLeadingZeros(ns);
+    if (exp > MAX_EXP)
+      return (MAX_EXP - MIN_EXP + 2) * SUB - 1;
+    int sub = (int) (ns >> (exp - SUB_BITS)) & (SUB - 1);
+    return (exp - MIN_EXP + 1) * SUB + sub;
+  }
+
+  /** @return Upper end of values in bucket */
+  private static long getUpperLimit(int bucket)
+  {
+    if (bucket < SUB)
+      return (long) (bucket + 1) << (MIN_EXP - SUB_BITS);
+    int exp = bucket / SUB - 1 + MIN_EXP;
+    int sub = bucket % SUB;
+    return (long) (SUB + sub + 1) << (exp - SUB_BITS);
+  }
+
+  /** @return Number of recorded values */
+  public long getCount()
+  {
+    return count;
+  }
+
+  /** @return Largest recorded value [ns] */
+  public long getMax()
+  {
+    return max;
+  }
+
+  /** @param fraction 0.5 for median, 0.99 for 99th percentile, ...
+   *  @return Value [ns] that the given fraction of recorded values doesn't exceed
+   */
+  public long getPercentile(double fraction)
+  {
+    if (count == 0)
+      return 0;
+    long needed = Math.max(1, (long) Math.ceil(fraction * count));
+    long sum = 0;
+    for (int i=0; i<counts.length; ++i)
+    {
+      sum += counts[i];
+      if (sum >= needed)
+        return i < counts.length-1 ? Math.min(getUpperLimit(i), max) : max;
+    }
+    return max;
+  }
+
+  /** Clear all recorded values */
+  public void reset()
+  {
+    for (int i=0; i<counts.length; ++i)
+      counts[i] = 0;
+    count = 0;
+    max = 0;
+  }
+}
@@ -0,0 +1,162 @@
+// Copyright (c) FIRST Team 2393 and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+package frc.tools;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.wpi.first.networktables.NetworkTableEntry;
+import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+
+/** Timing of the robot loop to find the cause of loop overruns
+ *
+ *  <p>Subsystems time their periodic() via a {@link Probe}.
+ *  Command execute() is timed via the scheduler callbacks:
+ *  The time since the previous subsystem or command event is
+ *  attributed to the command that just executed,
+ *  which also includes the isFinished() check of the previous command.
+ *
+ *  <p>Meant to be used from the robot loop, not thread-safe.
+ */
+public class LoopTiming
+{
+  /** Timing of one subsystem, command, .. */
+  public static class Probe
+  {
+    private final String name;
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private final NetworkTableEntry entry;
+    private final double[] stats = new double[3];
+
+    private Probe(String name)
+    {
+      this.name = name;
+      entry = SmartDashboard.getEntry("Timing " + name);
+    }
+
+    /** @return Start time to pass to {@link #stop(long)} */
+    public long start()
+    {
+      return System.nanoTime();
+    }
+
+    /** @param start Time returned by {@link #start()} */
+    public void stop(long start)
+    {
+      long now = System.nanoTime();
+      histogram.record(now - start);
+      mark = now;
+    }
+
+    private void publish()
+    {
+      stats[0] = histogram.getPercentile(0.5) / 1e6;
+      stats[1] = histogram.getPercentile(0.99) / 1e6;
+      stats[2] = histogram.getMax() / 1e6;
+      entry.setDoubleArray(stats);
+    }
+  }
+
+  /** All probes */
+  private static final List<Probe> probes = new ArrayList<>();
+
+  /** Probes for commands by name */
+  private static final Map<String, Probe> commands = new HashMap<>();
+
+  /** Time of the run of the command scheduler */
+  private static final Probe scheduler = probe("Scheduler");
+
+  /** Time of last event, start of command execution is estimated from this */
+  private static long mark = 0;
+
+  private static double publish_time = Double.NEGATIVE_INFINITY;
+
+  /** @param name Name of subsystem, ..
+   *  @return Probe for timing its code
+   */
+  public static Probe probe(String name)
+  {
+    Probe probe = new Probe(name);
+    probes.add(probe);
+    return probe;
+  }
+
+  /** Register with command scheduler to time commands */
+  public static void install()
+  {
+    CommandScheduler.getInstance().onCommandInitialize(command -> mark = System.nanoTime());
+    CommandScheduler.getInstance().onCommandExecute(LoopTiming::executed);
+    CommandScheduler.getInstance().onCommandFinish(command -> mark = System.nanoTime());
+    CommandScheduler.getInstance().onCommandInterrupt(command -> mark = System.nanoTime());
+  }
+
+  private static void executed(Command command)
+  {
+    Probe probe = commands.get(command.getName());
+    if (probe == null)
+    {
+      probe = probe(command.getName());
+      commands.put(command.getName(), probe);
+    }
+    probe.stop(mark);
+  }
+
+  /** Run command scheduler, timing it as well as subsystems and commands */
+  public static void runScheduler()
+  {
+    long start = scheduler.start();
+    mark = start;
+    CommandScheduler.getInstance().run();
+    scheduler.stop(start);
+  }
+
+  /** Publish p50, p99 and max [ms] of all probes, once per second */
+  public static void publish()
+  {
+    double now = Timer.getFPGATimestamp();
+    if (now - publish_time < 1.0)
+      return;
+    publish_time = now;
+    for (int i=0; i<probes.size(); ++i)
+      probes.get(i).publish();
+  }
+
+  /** Write timing of all probes to a file in the operating directory, then reset them */
+  public static void dump()
+  {
+    if (scheduler.histogram.getCount() <= 0)
+      return;
+    File file = new File(Filesystem.getOperatingDirectory(), "loop_timing.txt");
+    try (PrintWriter out = new PrintWriter(new FileWriter(file, true)))
+    {
+      out.printf("# Loop timing at %.1f s, %d periods\n", Timer.getFPGATimestamp(), scheduler.histogram.getCount());
+      out.printf("%-40s %8s %10s %10s %10s\n", "# Name", "Count", "p50 [ms]", "p99 [ms]", "Max [ms]");
+      for (Probe probe : probes)
+      {
+        out.printf("%-40s %8d %10.3f %10.3f %10.3f\n",
+                   probe.name,
+                   probe.histogram.getCount(),
+                   probe.histogram.getPercentile(0.5) / 1e6,
+                   probe.histogram.getPercentile(0.99) / 1e6,
+                   probe.histogram.getMax() / 1e6);
+        probe.histogram.reset();
+      }
+      System.out.println("Wrote loop timing to " + file);
+    }
+    catch (Exception ex)
+    {
+      System.err.println("Cannot write loop timing to " + file);
+      ex.printStackTrace();
+    }
+  }
+}
@@ -0,0 +1,87 @@
+// Copyright (c) FIRST Team 2393 and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+package frc.tools;
+
+/** Ring buffer for passing records of numbers from one thread to another
+ *
+ *  <p>Lock-free, but only for a single producer thread
+ *  and a single consumer thread.
+ *  Records are copied in and out of a preallocated array,
+ *  so passing data doesn't create any garbage.
+ */
+public class RingBuffer
+{
+  private final int capacity, record_size;
+  private final double[] data;
+
+  /** Number of records written, only updated by producer */
+  private volatile long written = 0;
+
+  /** Number of records read, only updated by consumer */
+  private volatile long read = 0;
+
+  /** Number of records that had to be dropped because buffer was full */
+  private volatile long dropped = 0;
+
+  /** @param capacity Number of records that buffer can hold
+   *  @param record_size Number of values in each record
+   */
+  public RingBuffer(int capacity, int record_size)
+  {
+    this.capacity = capacity;
+    this.record_size = record_size;
+    data = new double[capacity * record_size];
+  }
+
+  /** @return Number of values in each record */
+  public int getRecordSize()
+  {
+    return record_size;
+  }
+
+  /** Add record, called by producer
+   *  @param record Values to copy into buffer
+   *  @return true if added, false if buffer was full and record has been dropped
+   */
+  public boolean offer(double[] record)
+  {
+    long w = written;
+    if (w - read >= capacity)
+    {
+      ++dropped;
+      return false;
+    }
+    System.arraycopy(record, 0, data, (int) (w % capacity) * record_size, record_size);
+    // Volatile write publishes the record to the consumer
+    written = w + 1;
+    return true;
+  }
+
+  /** Get oldest record, called by consumer
+   *  @param record Array to fill with values from buffer
+   *  @return true if record was read, false if buffer was empty
+   */
+  public boolean poll(double[] record)
+  {
+    long r = read;
+    if (r >= written)
+      return false;
+    System.arraycopy(data, (int) (r % capacity) * record_size, record, 0, record_size);
+    // Volatile write allows producer to re-use the slot
+    read = r + 1;
+    return true;
+  }
+
+  /** @return Number of records that are waiting to be read */
+  public int size()
+  {
+    return (int) (written - read);
+  }
+
+  /** @return Number of records that had to be dropped */
+  public long getDropped()
+  {
+    return dropped;
+  }
+}
@@ -0,0 +1,163 @@
+// Copyright (c) FIRST Team 2393 and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+package frc.tools;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.wpi.first.networktables.NetworkTableEntry;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+
+/** Dashboard telemetry that's only published when it's worth it
+ *
+ *  <p>Subsystems call {@link Topic#set} as often as they like.
+ *  Values are only written to network tables in {@link #flush()},
+ *  which CommandRobotBase calls once at the end of each period,
+ *  and only if they changed by more than a deadband
+ *  and the last write is long enough ago for the topic's priority.
+ *
+ *  <p>Meant to be used from the robot loop, not thread-safe.
+ */
+public class Telemetry
+{
+  /** How often a topic may be written */
+  public enum Priority
+  {
+    /** Each period, for example position on field */
+    HIGH(0.0),
+    /** 10 Hz, for example sensor readings */
+    NORMAL(0.1),
+    /** 5 Hz, for example setpoints echoed for tuning */
+    LOW(0.2);
+
+    private final double interval;
+
+    private Priority(double interval)
+    {
+      this.interval = interval;
+    }
+  }
+
+  /** One published value */
+  public static class Topic
+  {
+    private final NetworkTableEntry entry;
+    private final boolean flag;
+    private final double deadband, interval;
+    private double value = 0.0, published = 0.0;
+    private double publish_time = Double.NEGATIVE_INFINITY;
+    private boolean updated = false, never_published = true;
+
+    private Topic(String name, boolean flag, double deadband, Priority priority)
+    {
+      entry = SmartDashboard.getEntry(name);
+      this.flag = flag;
+      this.deadband = deadband;
+      interval = priority.interval;
+    }
+
+    /** @param value Value to publish on next flush */
+    public void set(double value)
+    {
+      ++requested;
+      this.value = value;
+      updated = true;
+    }
+
+    /** @param value Value to publish on next flush */
+    public void set(boolean value)
+    {
+      set(value ? 1.0 : 0.0);
+    }
+
+    private void flush(double now)
+    {
+      if (! updated)
+        return;
+      // Nothing new to show?
+      if (! never_published  &&  Math.abs(value - published) <= deadband)
+      {
+        updated = false;
+        return;
+      }
+      // Too soon? Keep pending for a later flush.
+      // Allow for some jitter in the period
+      if (now - publish_time < interval - 0.005)
+        return;
+
+      if (flag)
+        entry.setBoolean(value != 0.0);
+      else
+        entry.setDouble(value);
+      published = value;
+      publish_time = now;
+      updated = false;
+      never_published = false;
+      ++written;
+    }
+  }
+
+  /** All topics */
+  private static final List<Topic> topics = new ArrayList<>();
+
+  /** Number of values requested and actually written */
+  private static long requested = 0, written = 0;
+
+  private static final NetworkTableEntry nt_written = SmartDashboard.getEntry("Telemetry Written");
+  private static final NetworkTableEntry nt_suppressed = SmartDashboard.getEntry("Telemetry Suppressed");
+  private static double counter_time = Double.NEGATIVE_INFINITY;
+
+  /** @param name Dashboard name
+   *  @param deadband Minimum change to publish
+   *  @param priority How often to publish
+   *  @return Topic for number
+   */
+  public static Topic number(String name, double deadband, Priority priority)
+  {
+    Topic topic = new Topic(name, false, deadband, priority);
+    topics.add(topic);
+    return topic;
+  }
+
+  /** @param name Dashboard name
+   *  @param priority How often to publish
+   *  @return Topic for boolean
+   */
+  public static Topic flag(String name, Priority priority)
+  {
+    Topic topic = new Topic(name, true, 0.0, priority);
+    topics.add(topic);
+    return topic;
+  }
+
+  /** @return Number of values that were not written to network tables */
+  public static long getSuppressed()
+  {
+    // Values still pending right now are counted as suppressed
+    return requested - written;
+  }
+
+  /** @return Number of values that were written to network tables */
+  public static long getWritten()
+  {
+    return written;
+  }
+
+  /** Write all values that need to be published */
+  public static void flush()
+  {
+    double now = Timer.getFPGATimestamp();
+    for (int i=0; i<topics.size(); ++i)
+      topics.get(i).flush(now);
+
+    // Show counters once per second
+    if (now - counter_time >= 1.0)
+    {
+      nt_written.setDouble(written);
+      nt_suppressed.setDouble(getSuppressed());
+      counter_time = now;
+    }
+  }
+}
@@ -0,0 +1,219 @@
+// Copyright (c) FIRST Team 2393 and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+package frc.tools;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import edu.wpi.first.math.trajectory.Trajectory;
+import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj.RobotBase;
+
+/** Cache for trajectories
+ *
+ *  <p>Trajectories are identified by a key computed from
+ *  everything that goes into generating them, like waypoints
+ *  and configuration. Each trajectory is only generated once
+ *  and then shared.
+ *
+ *  <p>The cache can be saved to a binary file.
+ *  When that file exists, it is memory-mapped and trajectories
+ *  are read from it as they are requested instead of
+ *  generating them, and their states are only decoded when accessed.
+ *  Entries that no longer match any request are simply
+ *  ignored, so a stale file doesn't hurt, it's just slower.
+ *
+ *  <p>File format, little endian:
+ *  <pre>
+ *  int magic, int count,
+ *  count times: long key, int offset, int number of states
+ *  At each offset: States as in {@link TrajectoryFile}
+ *  </pre>
+ */
+public class TrajectoryCache
+{
+  private static final int MAGIC = 0x54524a32; // "TRJ2"
+
+  /** Seed for {@link #computeKey} */
+  public static final long SEED = 0xcbf29ce484222325L;
+
+  /** System property for the deploy directory,
+   *  set when precomputing trajectories on the desktop without the HAL
+   */
+  public static final String DEPLOY_DIRECTORY = "frc.deploy";
+
+  private final File file;
+
+  /** Trajectories that have been requested */
+  private final Map<Long, Trajectory> trajectories = new HashMap<>();
+
+  /** Index of file: Offset and state count for each key */
+  private final Map<Long, int[]> index = new HashMap<>();
+
+  /** File content */
+  private ByteBuffer buffer = null;
+
+  private boolean loaded = false;
+  private int generated = 0;
+
+  /** @param file Binary file from which to read trajectories and to which to save them */
+  public TrajectoryCache(File file)
+  {
+    this.file = file;
+  }
+
+  /** @return Deploy directory, from the {@link #DEPLOY_DIRECTORY} property if set */
+  public static File getDeployDirectory()
+  {
+    String dir = System.getProperty(DEPLOY_DIRECTORY);
+    return dir == null ? Filesystem.getDeployDirectory() : new File(dir);
+  }
+
+  /** Compute key (64 bit FNV-1a hash)
+   *  @param key Key computed so far, start with {@link #SEED}
+   *  @param values Values to add to the key
+   *  @return Key
+   */
+  public static long computeKey(long key, double... values)
+  {
+    for (double value : values)
+    {
+      long bits = Double.doubleToLongBits(value);
+      for (int i=0; i<8; ++i)
+      {
+        key ^= (bits >>> (8*i)) & 0xFF;
+        key *= 0x100000001b3L;
+      }
+    }
+    return key;
+  }
+
+  /** Get trajectory
+   *  @param key Key for the trajectory, see {@link #computeKey}
+   *  @param generator Generates the trajectory if it's neither in memory nor in file
+   *  @return Trajectory
+   */
+  public synchronized Trajectory get(long key, Supplier<Trajectory> generator)
+  {
+    Trajectory trajectory = find(key);
+    if (trajectory == null)
+    {
+      trajectory = generator.get();
+      ++generated;
+      trajectories.put(key, trajectory);
+    }
+    return trajectory;
+  }
+
+  /** Add trajectory that was generated outside of the cache,
+   *  so other threads could use the cache while it was generated
+   *  @param key Key for the trajectory, see {@link #computeKey}
+   *  @param trajectory Trajectory
+   */
+  public synchronized void put(long key, Trajectory trajectory)
+  {
+    ++generated;
+    trajectories.put(key, trajectory);
+  }
+
+  /** Get trajectory without generating it
+   *  @param key Key for the trajectory, see {@link #computeKey}
+   *  @return Trajectory from memory or file, <code>null</code> if unknown
+   */
+  public synchronized Trajectory find(long key)
+  {
+    Trajectory trajectory = trajectories.get(key);
+    if (trajectory != null)
+      return trajectory;
+
+    load();
+    int[] entry = index.get(key);
+    if (entry == null)
+      return null;
+    trajectory = TrajectoryFile.getTrajectory(buffer, entry[0], entry[1]);
+    trajectories.put(key, trajectory);
+    return trajectory;
+  }
+
+  /** @return Number of trajectories that had to be generated because they were not in the file */
+  public synchronized int getGenerated()
+  {
+    return generated;
+  }
+
+  /** Read index of file, once */
+  private void load()
+  {
+    if (loaded)
+      return;
+    loaded = true;
+    if (! file.canRead())
+      return;
+    try
+    {
+      if (System.getProperty(DEPLOY_DIRECTORY) != null  ||  RobotBase.isSimulation())
+      { // Read into memory, since a mapped file can't be replaced by save() on all systems
+        buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+      }
+      else
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+        {
+          buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+      buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+      if (buffer.getInt(0) != MAGIC)
+        throw new Exception("Wrong file type");
+      int count = buffer.getInt(4);
+      for (int i=0; i<count; ++i)
+      {
+        int pos = 8 + i*16;
+        index.put(buffer.getLong(pos), new int[] { buffer.getInt(pos + 8), buffer.getInt(pos + 12) });
+      }
+    }
+    catch (Exception ex)
+    {
+      System.err.println("Cannot read trajectories from '" + file + "'");
+      ex.printStackTrace();
+      index.clear();
+    }
+  }
+
+  /** Save all trajectories that have been requested so far
+   *  @throws Exception on error
+   */
+  public synchronized void save() throws Exception
+  {
+    List<Long> keys = new ArrayList<>(trajectories.keySet());
+    int size = 8 + keys.size() * 16;
+    for (long key : keys)
+      size += trajectories.get(key).getStates().size() * TrajectoryFile.STATE_BYTES;
+
+    ByteBuffer out = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+    out.putInt(MAGIC);
+    out.putInt(keys.size());
+    int offset = 8 + keys.size() * 16;
+    for (long key : keys)
+    {
+      int count = trajectories.get(key).getStates().size();
+      out.putLong(key);
+      out.putInt(offset);
+      out.putInt(count);
+      offset += count * TrajectoryFile.STATE_BYTES;
+    }
+    for (long key : keys)
+      TrajectoryFile.putStates(out, trajectories.get(key));
+    Files.write(file.toPath(), out.array());
+    System.out.println("Saved " + keys.size() + " trajectories to '" + file + "'");
+  }
+}
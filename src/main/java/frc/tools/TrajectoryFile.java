@@ -0,0 +1,225 @@
+// Copyright (c) FIRST Team 2393 and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+package frc.tools;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.RandomAccess;
+import java.util.zip.CRC32;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.trajectory.Trajectory;
+import edu.wpi.first.math.trajectory.TrajectoryUtil;
+
+/** Binary trajectory file
+ *
+ *  <p>Much more compact than PathWeaver JSON,
+ *  and read by memory-mapping the file.
+ *  Trajectory states are only decoded when first accessed.
+ *
+ *  <p>File format, little endian:
+ *  <pre>
+ *  int magic, int version, int number of states,
+ *  int CRC32 of the JSON file from which it was converted (or 0),
+ *  long size of that JSON file (or 0),
+ *  then for each state:
+ *      double time, velocity, acceleration, x, y, heading [rad], curvature
+ *  </pre>
+ *
+ *  <p>The CRC and size of the JSON file are checked when converting,
+ *  and in simulation. The robot doesn't touch the JSON file
+ *  but trusts the header of the deployed binary file.
+ */
+public class TrajectoryFile
+{
+  private static final int MAGIC = 0x4A525454; // "TTRJ"
+  private static final int VERSION = 2;
+  private static final int HEADER_BYTES = 24;
+
+  /** Bytes per trajectory state */
+  public static final int STATE_BYTES = 7 * Double.BYTES;
+
+  /** States that are decoded from a buffer when first accessed.
+   *  Meant for use by the robot loop, not thread-safe.
+   */
+  private static class StateList extends AbstractList<Trajectory.State> implements RandomAccess
+  {
+    private final ByteBuffer buffer;
+    private final int offset;
+    private final Trajectory.State[] states;
+
+    StateList(ByteBuffer buffer, int offset, int count)
+    {
+      this.buffer = buffer;
+      this.offset = offset;
+      states = new Trajectory.State[count];
+    }
+
+    @Override
+    public Trajectory.State get(int i)
+    {
+      Trajectory.State state = states[i];
+      if (state == null)
+      {
+        int pos = offset + i*STATE_BYTES;
+        state = new Trajectory.State(buffer.getDouble(pos),
+                                     buffer.getDouble(pos + 8),
+                                     buffer.getDouble(pos + 16),
+                                     new Pose2d(buffer.getDouble(pos + 24),
+                                                buffer.getDouble(pos + 32),
+                                                new Rotation2d(buffer.getDouble(pos + 40))),
+                                     buffer.getDouble(pos + 48));
+        states[i] = state;
+      }
+      return state;
+    }
+
+    @Override
+    public int size()
+    {
+      return states.length;
+    }
+  }
+
+  /** @param buffer Little endian buffer that holds states
+   *  @param offset Offset of first state in buffer
+   *  @param count Number of states
+   *  @return Trajectory that decodes its states on demand
+   */
+  static Trajectory getTrajectory(ByteBuffer buffer, int offset, int count)
+  {
+    return new Trajectory(new StateList(buffer, offset, count));
+  }
+
+  /** @param buffer Little endian buffer, states are added at current position
+   *  @param trajectory Trajectory to add
+   */
+  static void putStates(ByteBuffer buffer, Trajectory trajectory)
+  {
+    for (Trajectory.State state : trajectory.getStates())
+    {
+      buffer.putDouble(state.timeSeconds);
+      buffer.putDouble(state.velocityMetersPerSecond);
+      buffer.putDouble(state.accelerationMetersPerSecondSq);
+      buffer.putDouble(state.poseMeters.getX());
+      buffer.putDouble(state.poseMeters.getY());
+      buffer.putDouble(state.poseMeters.getRotation().getRadians());
+      buffer.putDouble(state.curvatureRadPerMeter);
+    }
+  }
+
+  /** @param json JSON file
+   *  @return CRC32 of its content
+   *  @throws Exception on error
+   */
+  public static int checksum(File json) throws Exception
+  {
+    CRC32 crc = new CRC32();
+    crc.update(Files.readAllBytes(json.toPath()));
+    return (int) crc.getValue();
+  }
+
+  /** @param file Binary trajectory file
+   *  @param json JSON file that it should have been converted from
+   *  @return <code>true</code> if file was converted from the current JSON file
+   */
+  public static boolean isCurrent(File file, File json)
+  {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+    {
+      ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+      if (channel.read(header, 0) != HEADER_BYTES)
+        return false;
+      // Size is a quick check, but an edit may keep the size, so also compare content
+      return header.getInt(0) == MAGIC  &&  header.getInt(4) == VERSION  &&
+             header.getLong(16) == json.length()  &&  header.getInt(12) == checksum(json);
+    }
+    catch (Exception ex)
+    {
+      return false;
+    }
+  }
+
+  /** @param file File to read
+   *  @return Trajectory
+   *  @throws Exception on error
+   */
+  public static Trajectory read(File file) throws Exception
+  {
+    ByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+    {
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+    if (buffer.getInt(0) != MAGIC  ||  buffer.getInt(4) != VERSION)
+      throw new Exception("'" + file + "' is not a trajectory file");
+    int count = buffer.getInt(8);
+    if (buffer.capacity() != HEADER_BYTES + count * STATE_BYTES)
+      throw new Exception("'" + file + "' has wrong size");
+    return getTrajectory(buffer, HEADER_BYTES, count);
+  }
+
+  /** @param trajectory Trajectory to write
+   *  @param json JSON file from which it was converted, or <code>null</code>
+   *  @param file File to write
+   *  @throws Exception on error
+   */
+  public static void write(Trajectory trajectory, File json, File file) throws Exception
+  {
+    int count = trajectory.getStates().size();
+    ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + count * STATE_BYTES)
+                                  .order(ByteOrder.LITTLE_ENDIAN);
+    buffer.putInt(MAGIC);
+    buffer.putInt(VERSION);
+    buffer.putInt(count);
+    buffer.putInt(json != null ? checksum(json) : 0);
+    buffer.putLong(json != null ? json.length() : 0);
+    putStates(buffer, trajectory);
+    Files.write(file.toPath(), buffer.array());
+  }
+
+  /** Convert PathWeaver JSON files into binary trajectory files,
+   *  "ABC.wpilib.json" into "ABC.traj".
+   *
+   *  <p>Run on desktop from the project directory
+   *  after changing paths in PathWeaver.
+   *
+   *  @param args Directory, defaults to "src/main/deploy/paths"
+   */
+  public static void main(String[] args) throws Exception
+  {
+    convert(new File(args.length > 0 ? args[0] : "src/main/deploy/paths"));
+  }
+
+  /** Convert all PathWeaver JSON files in a directory
+   *  unless their binary file is current
+   *  @param dir Directory
+   *  @throws Exception on error
+   */
+  public static void convert(File dir) throws Exception
+  {
+    File[] files = dir.listFiles((d, name) -> name.endsWith(".wpilib.json"));
+    if (files == null)
+      throw new Exception("Cannot list " + dir);
+    for (File json : files)
+    {
+      String name = json.getName().replace(".wpilib.json", ".traj");
+      File file = new File(dir, name);
+      if (isCurrent(file, json))
+        continue;
+      Path path = json.toPath();
+      Trajectory trajectory = TrajectoryUtil.fromPathweaverJson(path);
+      write(trajectory, json, file);
+      System.out.println(json + " (" + json.length() + " bytes) -> " + file + " (" + file.length() + " bytes)");
+    }
+  }
+}
@@ -0,0 +1,178 @@
+// Copyright (c) FIRST Team 2393 and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+package frc.tools;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.trajectory.Trajectory;
+import edu.wpi.first.math.trajectory.TrajectoryConfig;
+import edu.wpi.first.math.trajectory.TrajectoryGenerator;
+import edu.wpi.first.math.trajectory.TrapezoidProfile;
+
+/** Plans trajectories in a background thread
+ *
+ *  <p>Generating a trajectory can take several milliseconds,
+ *  too long to do in the robot loop.
+ *  The planner generates it on a worker thread,
+ *  see {@link frc.swervelib.PlannedTrajectoryCommand} for following it once it's ready.
+ *
+ *  <p>Moves that would run into the reef, barge or coral stations
+ *  are planned around them by the {@link FieldPlanner}.
+ *
+ *  <p>The TrajectoryGenerator tends to fail for short moves.
+ *  Those, or any move where the generator fails,
+ *  use a straight line with a trapezoidal speed profile.
+ *  Note that the generator doesn't throw an exception when it fails
+ *  but reports the error and returns a trajectory with a single state,
+ *  see {@link #isValid}.
+ */
+public class TrajectoryPlanner
+{
+  /** Moves shorter than this [m] use a straight line */
+  public static final double SHORT_MOVE = 0.5;
+
+  /** Time between states of straight line trajectory [s] */
+  private static final double STEP = 0.02;
+
+  private static final ExecutorService worker = Executors.newSingleThreadExecutor(runnable ->
+  {
+    Thread thread = new Thread(runnable, "TrajectoryPlanner");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  /** Plan trajectory in background
+   *
+   *  <p>The trajectory's heading is the direction of travel.
+   *  A swerve drivetrain can rotate to the goal's heading
+   *  independent from the trajectory.
+   *
+   *  @param start Start of trajectory
+   *  @param goal End of trajectory
+   *  @param max_speed Maximum speed [m/s]
+   *  @param max_acceleration Maximum acceleration [m/s^2]
+   *  @return Future for the trajectory
+   */
+  public static CompletableFuture<Trajectory> plan(Pose2d start, Pose2d goal, double max_speed, double max_acceleration)
+  {
+    return CompletableFuture.supplyAsync(() -> createTrajectory(start, goal, max_speed, max_acceleration), worker);
+  }
+
+  /** @param trajectory Trajectory from TrajectoryGenerator
+   *  @return <code>false</code> for the single-state trajectory that the generator returns on error
+   */
+  public static boolean isValid(Trajectory trajectory)
+  {
+    return trajectory != null  &&  trajectory.getStates().size() >= 2;
+  }
+
+  /** Create trajectory, called on worker thread
+   *  or to precompute trajectories
+   *  @see #plan
+   */
+  public static Trajectory createTrajectory(Pose2d start, Pose2d goal, double max_speed, double max_acceleration)
+  {
+    double distance = start.getTranslation().getDistance(goal.getTranslation());
+    if (distance >= SHORT_MOVE)
+    {
+      Rotation2d direction = goal.getTranslation().minus(start.getTranslation()).getAngle();
+      try
+      {
+        if (! AutoTools.field.isClear(start.getTranslation(), goal.getTranslation()))
+        {
+          Trajectory trajectory = AutoTools.field.createTrajectory(start, goal, new TrajectoryConfig(max_speed, max_acceleration));
+          if (isValid(trajectory))
+            return trajectory;
+        }
+        Trajectory trajectory = TrajectoryGenerator.generateTrajectory(List.of(new Pose2d(start.getTranslation(), direction),
+                                                                               new Pose2d(goal.getTranslation(), direction)),
+                                                                       new TrajectoryConfig(max_speed, max_acceleration));
+        if (isValid(trajectory))
+          return trajectory;
+      }
+      catch (Exception ex)
+      {
+        // Fall through to straight line
+      }
+      System.err.println("Cannot generate trajectory from " + start + " to " + goal + ", using straight line");
+    }
+    return createStraightLine(start, goal, max_speed, max_acceleration);
+  }
+
+  /** Add a straight line to the start of a trajectory,
+   *  for example when the robot is a little off from where a precomputed trajectory starts
+   *  @param start Where the robot is
+   *  @param trajectory Trajectory to follow from there
+   *  @param max_speed Maximum speed [m/s]
+   *  @param max_acceleration Maximum acceleration [m/s^2]
+   *  @return Trajectory that moves from start to the initial pose of the trajectory, then follows it
+   */
+  public static Trajectory prependStraightLine(Pose2d start, Trajectory trajectory, double max_speed, double max_acceleration)
+  {
+    return createStraightLine(start, trajectory.getInitialPose(), max_speed, max_acceleration).concatenate(trajectory);
+  }
+
+  /** Create trajectory that follows points in straight lines,
+   *  stopping at each point
+   *  @param points Points, at least one
+   *  @param max_speed Maximum speed [m/s]
+   *  @param max_acceleration Maximum acceleration [m/s^2]
+   *  @return Trajectory
+   */
+  static Trajectory createPolyline(List<Translation2d> points, double max_speed, double max_acceleration)
+  {
+    if (points.size() < 2)
+      return createStraightLine(new Pose2d(points.get(0), Rotation2d.kZero), new Pose2d(points.get(0), Rotation2d.kZero),
+                                max_speed, max_acceleration);
+    Trajectory trajectory = null;
+    for (int i=1; i<points.size(); ++i)
+    {
+      Trajectory line = createStraightLine(new Pose2d(points.get(i-1), Rotation2d.kZero),
+                                           new Pose2d(points.get(i), Rotation2d.kZero),
+                                           max_speed, max_acceleration);
+      trajectory = trajectory == null ? line : trajectory.concatenate(line);
+    }
+    return trajectory;
+  }
+
+  /** Create straight line trajectory
+   *  @see #plan
+   */
+  static Trajectory createStraightLine(Pose2d start, Pose2d goal, double max_speed, double max_acceleration)
+  {
+    double dx = goal.getX() - start.getX(), dy = goal.getY() - start.getY();
+    double distance = Math.hypot(dx, dy);
+    // Direction of travel, or goal heading if we're already there
+    Rotation2d direction = distance > 1e-3 ? new Rotation2d(dx, dy) : goal.getRotation();
+
+    TrapezoidProfile profile = new TrapezoidProfile(new TrapezoidProfile.Constraints(max_speed, max_acceleration));
+    TrapezoidProfile.State begin = new TrapezoidProfile.State(0, 0), end = new TrapezoidProfile.State(distance, 0);
+    profile.calculate(0, begin, end);
+    double duration = profile.totalTime();
+
+    List<Trajectory.State> states = new ArrayList<>();
+    double last_speed = 0.0;
+    for (int i=0; ; ++i)
+    {
+      double t = Math.min(i * STEP, duration);
+      TrapezoidProfile.State state = profile.calculate(t, begin, end);
+      double fraction = distance > 1e-3 ? state.position / distance : 1.0;
+      double accel = i > 0 ? (state.velocity - last_speed) / STEP : 0.0;
+      states.add(new Trajectory.State(t, state.velocity, accel,
+                                      new Pose2d(start.getX() + fraction*dx, start.getY() + fraction*dy, direction),
+                                      0.0));
+      last_speed = state.velocity;
+      if (t >= duration)
+        break;
+    }
+    return new Trajectory(states);
+  }
+}
@@ -0,0 +1,72 @@
+// Copyright (c) FIRST Team 2393 and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+package frc.tools;
+
+import java.util.EnumSet;
+
+import edu.wpi.first.networktables.NetworkTableEntry;
+import edu.wpi.first.networktables.NetworkTableEvent;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+
+/** Number that can be tuned on the dashboard
+ *
+ *  <p>Rather than reading the network table entry
+ *  on each call, a listener updates a plain field
+ *  whenever the entry changes,
+ *  so {@link #get()} is cheap enough for control loops.
+ */
+public class TunableNumber
+{
+  private final NetworkTableEntry entry;
+
+  /** Current value, updated by listener */
+  private volatile double value;
+
+  /** Number of changes, updated by listener */
+  private volatile int changes = 0;
+
+  /** Number of changes that {@link #hasChanged()} already reported */
+  private int reported = 0;
+
+  /** @param name Dashboard name
+   *  @param default_value Value to use unless dashboard already has one
+   */
+  public TunableNumber(String name, double default_value)
+  {
+    entry = SmartDashboard.getEntry(name);
+    entry.setDefaultDouble(default_value);
+    value = entry.getDouble(default_value);
+    NetworkTableInstance.getDefault().addListener(entry,
+                                                  EnumSet.of(NetworkTableEvent.Kind.kValueAll),
+                                                  event ->
+    {
+      if (event.valueData.value.isDouble())
+      {
+        value = event.valueData.value.getDouble();
+        ++changes;
+      }
+    });
+  }
+
+  /** @return Current value */
+  public double get()
+  {
+    return value;
+  }
+
+  /** Check for changes since the last call.
+   *  Meant for one user of this number, for example
+   *  to only update a PID controller when necessary.
+   *  @return true if value changed since last call
+   */
+  public boolean hasChanged()
+  {
+    int current = changes;
+    if (current == reported)
+      return false;
+    reported = current;
+    return true;
+  }
+}
@@ -0,0 +1,63 @@
+// Copyright (c) FIRST Team 2393 and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+package frc.swervelib;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import edu.wpi.first.hal.HAL;
+
+/** Profiled {@link SwerveToPositionCommand} vs. P control, with the physics simulation of modules */
+class SwerveToPositionCommandTest
+{
+  /** Max. overshoot past the goal [m] that the profile may have */
+  private static final double MAX_OVERSHOOT = 0.05;
+
+  private static SwerveDrivetrain drivetrain;
+
+  @BeforeAll
+  static void setup()
+  {
+    assertTrue(HAL.initialize(500, 0));
+    SwerveToPositionSimulation.configure();
+    drivetrain = new SimulatedDrivetrain();
+    drivetrain.simulatePhysics();
+  }
+
+  @AfterAll
+  static void restore()
+  {
+    SwerveToPositionCommand.PROFILED = false;
+  }
+
+  static Stream<double[]> offsets()
+  {
+    return Arrays.stream(SwerveToPositionSimulation.OFFSETS);
+  }
+
+  @ParameterizedTest
+  @MethodSource("offsets")
+  void profileIsFaster(double[] offset)
+  {
+    SwerveToPositionCommand.PROFILED = false;
+    double[] p = SwerveToPositionSimulation.simulate(drivetrain, true, offset[0], offset[1], offset[2]);
+    SwerveToPositionCommand.PROFILED = true;
+    double[] profile = SwerveToPositionSimulation.simulate(drivetrain, true, offset[0], offset[1], offset[2]);
+    String info = String.format("Offset %.1f m, %.1f m, %.1f deg: P control %.2f s, %.3f m, profile %.2f s, %.3f m",
+                                offset[0], offset[1], offset[2], p[0], p[1], profile[0], profile[1]);
+
+    assertFalse(Double.isNaN(profile[0]), "Profile doesn't reach goal. " + info);
+    // P control that never gets there counts as slower
+    assertTrue(Double.isNaN(p[0]) || profile[0] < p[0], "Profile isn't faster. " + info);
+    assertTrue(profile[1] <= MAX_OVERSHOOT, "Profile overshoots. " + info);
+  }
+}